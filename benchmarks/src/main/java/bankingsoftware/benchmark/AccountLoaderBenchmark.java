@@ -0,0 +1,79 @@
+package bankingsoftware.benchmark;
+
+import bankingsoftware.AccountDatabase;
+import bankingsoftware.AccountLoader;
+import bankingsoftware.LoadReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccountLoaderBenchmark class that measures loading an account file into an
+ * empty database, on one thread and in parallel.
+ * The file is written once per trial and stays in the page cache, so the
+ * time is spent parsing and opening accounts. Divide the size by the time
+ * per operation for accounts loaded per millisecond.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class AccountLoaderBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    @Param({"array"})
+    private String backend;
+
+    private Path file;
+
+    /**
+     * Writes the account file
+     *
+     * @throws IOException If the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkData.accountFile(BenchmarkData.accounts(size, BenchmarkData.SEED));
+    }
+
+    /**
+     * Loads the file line by line
+     *
+     * @return Report of the load
+     * @throws IOException If the file cannot be read
+     */
+    @Benchmark
+    public LoadReport load() throws IOException {
+        AccountDatabase database = BenchmarkData.database(backend, size);
+        return new AccountLoader(database).load(file);
+    }
+
+    /**
+     * Loads the file with its chunks parsed on the common ForkJoinPool
+     *
+     * @return Report of the load
+     * @throws IOException If the file cannot be read
+     */
+    @Benchmark
+    public LoadReport loadParallel() throws IOException {
+        AccountDatabase database = BenchmarkData.database(backend, size);
+        return new AccountLoader(database).loadParallel(file);
+    }
+}
@@ -0,0 +1,152 @@
+package bankingsoftware.benchmark;
+
+import bankingsoftware.Account;
+import bankingsoftware.AccountDatabase;
+import bankingsoftware.Campus;
+import bankingsoftware.Checking;
+import bankingsoftware.CollegeChecking;
+import bankingsoftware.ConcurrentAccountDatabase;
+import bankingsoftware.Date;
+import bankingsoftware.MoneyMarket;
+import bankingsoftware.OffHeapAccountDatabase;
+import bankingsoftware.Profile;
+import bankingsoftware.Savings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * BenchmarkData class that generates the accounts and account files used by
+ * the benchmarks.
+ * The accounts are a fixed mix of the four types: 40% Checking, 10% College
+ * Checking, 20% Money Market and 30% Savings. Names are drawn from pools of
+ * 5,000 first and 20,000 last names, so holders repeat names the way real
+ * customers do, and balances range from $0 to $10,000 with one account in
+ * twenty above $2,000. The same seed always gives the same accounts.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+final class BenchmarkData {
+    static final long SEED = 20231101L;
+
+    private static final int FIRST_NAMES = 5_000;
+    private static final int LAST_NAMES = 20_000;
+    private static final int CAMPUSES = 3;
+
+    /**
+     * Not instantiated
+     */
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates accounts with the benchmark mix of types
+     *
+     * @param count Number of accounts
+     * @param seed  Seed of the random generator
+     * @return Accounts, in no particular order
+     */
+    static Account[] accounts(int count, long seed) {
+        Random random = new Random(seed);
+        int thisYear = new Date().getYear();
+        Account[] accounts = new Account[count];
+        for (int i = 0; i < count; i++) {
+            int mix = random.nextInt(10);
+            boolean college = mix == 4;
+            Profile holder = profile(random, college ? thisYear - 17 - random.nextInt(6) : 1950 + random.nextInt(55));
+            double balance = balance(random);
+            if (mix < 4) {
+                accounts[i] = new Checking(holder, balance);
+            } else if (college) {
+                accounts[i] = new CollegeChecking(holder, balance, Campus.values()[random.nextInt(CAMPUSES)]);
+            } else if (mix < 7) {
+                accounts[i] = new MoneyMarket(holder, balance, balance >= 2000, random.nextInt(6));
+            } else {
+                accounts[i] = new Savings(holder, balance, random.nextBoolean());
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Generates a profile born in the given year
+     */
+    private static Profile profile(Random random, int year) {
+        return new Profile("First" + random.nextInt(FIRST_NAMES), "Last" + random.nextInt(LAST_NAMES),
+                new Date(1 + random.nextInt(12), 1 + random.nextInt(28), year));
+    }
+
+    /**
+     * Generates a balance in dollars, above $2,000 for one account in twenty
+     */
+    private static double balance(Random random) {
+        int cents = random.nextInt(20) == 0 ? 200_000 + random.nextInt(800_000) : random.nextInt(200_000);
+        return cents / 100.0;
+    }
+
+    /**
+     * Creates an empty database of a backend
+     *
+     * @param backend  "array" for AccountDatabase, "concurrent" for
+     *                 ConcurrentAccountDatabase or "offheap" for OffHeapAccountDatabase
+     * @param capacity Number of accounts to reserve room for
+     * @return Empty database
+     */
+    static AccountDatabase database(String backend, int capacity) {
+        return switch (backend) {
+            case "array" -> new AccountDatabase(capacity);
+            case "concurrent" -> new ConcurrentAccountDatabase(capacity);
+            case "offheap" -> new OffHeapAccountDatabase(capacity);
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        };
+    }
+
+    /**
+     * Creates a database of a backend holding the given accounts
+     *
+     * @param backend  Backend, see database(String, int)
+     * @param accounts Accounts to open
+     * @return Database holding the accounts
+     */
+    static AccountDatabase database(String backend, Account[] accounts) {
+        AccountDatabase database = database(backend, accounts.length);
+        for (Account account : accounts) {
+            database.open(account);
+        }
+        return database;
+    }
+
+    /**
+     * Writes accounts to a temporary account file, one "type,first,last,dob,balance[,code]" line each
+     *
+     * @param accounts Accounts to write
+     * @return The file, deleted when the JVM exits
+     * @throws IOException If the file cannot be written
+     */
+    static Path accountFile(Account[] accounts) throws IOException {
+        Path file = Files.createTempFile("accounts", ".txt");
+        file.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            for (Account account : accounts) {
+                Profile holder = account.getProfile();
+                line.setLength(0);
+                line.append(account.getAccountTypeInitial()).append(',').append(holder.getFname()).append(',')
+                        .append(holder.getLname()).append(',').append(holder.getDOB()).append(',');
+                long cents = account.getBalanceCents();
+                line.append(cents / 100).append('.').append(cents % 100 < 10 ? "0" : "").append(cents % 100);
+                if (account instanceof CollegeChecking) {
+                    line.append(',').append(((CollegeChecking) account).getCampusCode());
+                } else if (account instanceof Savings && !(account instanceof MoneyMarket)) {
+                    line.append(',').append(((Savings) account).getLoyaltyStatus() ? 1 : 0);
+                }
+                writer.append(line).append('\n');
+            }
+        }
+        return file;
+    }
+}
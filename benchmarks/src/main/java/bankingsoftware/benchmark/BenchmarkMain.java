@@ -0,0 +1,50 @@
+package bankingsoftware.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * BenchmarkMain class that runs the benchmarks with the usual JMH command line
+ * options, writing the results as JSON to jmh-result.json unless another
+ * format (-rf) or file (-rff) is given, so runs can be compared over time.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class BenchmarkMain {
+    static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Runs the benchmarks selected on the command line, or all of them
+     *
+     * @param args JMH command line options, see -h
+     * @throws CommandLineOptionException If the options cannot be parsed
+     * @throws IOException                If the help cannot be printed
+     * @throws RunnerException            If a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        } else if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
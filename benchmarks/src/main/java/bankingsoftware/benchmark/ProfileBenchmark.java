@@ -0,0 +1,87 @@
+package bankingsoftware.benchmark;
+
+import bankingsoftware.Date;
+import bankingsoftware.Profile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProfileBenchmark class that measures Profile.equals and Profile.compareTo,
+ * which every lookup and sort of the database calls.
+ * Each operation compares the next of 1,024 pairs. In equals the two profiles
+ * are separate objects whose names differ only in case, the worst case for
+ * the case-insensitive comparison. In compareTo the pairs are random, so most
+ * are decided by the last name.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProfileBenchmark {
+    private static final int PAIRS = 1024;
+
+    private final Profile[] left = new Profile[PAIRS];
+    private final Profile[] sameInOtherCase = new Profile[PAIRS];
+    private final Profile[] right = new Profile[PAIRS];
+    private int next;
+
+    /**
+     * Creates the pairs of profiles
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        for (int i = 0; i < PAIRS; i++) {
+            String fname = "First" + random.nextInt(5_000);
+            String lname = "Last" + random.nextInt(20_000);
+            Date dob = new Date(1 + random.nextInt(12), 1 + random.nextInt(28), 1950 + random.nextInt(55));
+            left[i] = new Profile(fname, lname, dob);
+            sameInOtherCase[i] = new Profile(fname.toUpperCase(), lname.toUpperCase(),
+                    new Date(dob.getMonth(), dob.getDay(), dob.getYear()));
+        }
+        for (int i = 0; i < PAIRS; i++) {
+            right[i] = left[random.nextInt(PAIRS)];
+        }
+    }
+
+    /**
+     * Returns the position of the next pair to compare
+     */
+    private int next() {
+        next = (next + 1) & (PAIRS - 1);
+        return next;
+    }
+
+    /**
+     * Compares two equal profiles whose names differ in case
+     */
+    @Benchmark
+    public boolean equalsIgnoringCase() {
+        int pair = next();
+        return left[pair].equals(sameInOtherCase[pair]);
+    }
+
+    /**
+     * Orders two random profiles
+     */
+    @Benchmark
+    public int compareTo() {
+        int pair = next();
+        return left[pair].compareTo(right[pair]);
+    }
+}
@@ -0,0 +1,134 @@
+package bankingsoftware.benchmark;
+
+import bankingsoftware.AccountDatabase;
+import bankingsoftware.Date;
+import bankingsoftware.Profile;
+import bankingsoftware.Savings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportBenchmark class that measures the three reports over the whole
+ * database: printSorted, printFeesAndInterests and printUpdatesBalances.
+ * The reports are written to a Writer that discards them, so the time is
+ * spent sorting, updating and formatting rather than on I/O.
+ * The database keeps its sorted order until an account is opened or closed,
+ * so printSorted and printFeesAndInterests only sort on their first call
+ * and then measure formatting. printSortedCold and printFeesAndInterestsCold
+ * close and reopen an account before each call, so every call sorts again.
+ * printUpdatesBalances changes the balances on every call, as a month-end
+ * run does, so later calls work on later months.
+ * Run another backend with "-p backend=concurrent" or "-p backend=offheap".
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ReportBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"array"})
+    private String backend;
+
+    private AccountDatabase database;
+
+    /**
+     * Builds the database
+     */
+    @Setup
+    public void setUp() {
+        database = BenchmarkData.database(backend, BenchmarkData.accounts(size, BenchmarkData.SEED));
+    }
+
+    /**
+     * Writes the accounts in order of account type and profile, reusing the sorted order
+     *
+     * @throws IOException Never, the writer discards its input
+     */
+    @Benchmark
+    public void printSorted() throws IOException {
+        database.printSorted(Writer.nullWriter());
+    }
+
+    /**
+     * Sorts the accounts and writes them in order of account type and profile
+     *
+     * @param cold State that drops the sorted order before the call
+     * @throws IOException Never, the writer discards its input
+     */
+    @Benchmark
+    public void printSortedCold(ColdView cold) throws IOException {
+        database.printSorted(Writer.nullWriter());
+    }
+
+    /**
+     * Writes the accounts with their fees and interests, reusing the sorted order
+     *
+     * @throws IOException Never, the writer discards its input
+     */
+    @Benchmark
+    public void printFeesAndInterests() throws IOException {
+        database.printFeesAndInterests(Writer.nullWriter());
+    }
+
+    /**
+     * Sorts the accounts and writes them with their fees and interests
+     *
+     * @param cold State that drops the sorted order before the call
+     * @throws IOException Never, the writer discards its input
+     */
+    @Benchmark
+    public void printFeesAndInterestsCold(ColdView cold) throws IOException {
+        database.printFeesAndInterests(Writer.nullWriter());
+    }
+
+    /**
+     * Applies a month of fees and interests and writes the updated accounts
+     *
+     * @throws IOException Never, the writer discards its input
+     */
+    @Benchmark
+    public void printUpdatesBalances() throws IOException {
+        database.printUpdatesBalances(Writer.nullWriter());
+    }
+
+    /**
+     * State that closes and reopens an account before every call, so the
+     * database drops its sorted order and the report has to sort again.
+     * The close and open take constant time, which is small next to a sort.
+     */
+    @State(Scope.Thread)
+    public static class ColdView {
+        private static final Profile HOLDER = new Profile("Cold", "View", new Date(1, 1, 1990));
+
+        /**
+         * Closes and reopens the extra account
+         *
+         * @param benchmark Benchmark whose database is changed
+         */
+        @Setup(Level.Invocation)
+        public void dropSortedOrder(ReportBenchmark benchmark) {
+            benchmark.database.close(new Savings(HOLDER, 0));
+            benchmark.database.open(new Savings(HOLDER, 0));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package bankingsoftware.benchmark;
+
+import bankingsoftware.Account;
+import bankingsoftware.AccountDatabase;
+import bankingsoftware.Checking;
+import bankingsoftware.CollegeChecking;
+import bankingsoftware.MoneyMarket;
+import bankingsoftware.Profile;
+import bankingsoftware.Savings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionBenchmark class that measures the single account operations of
+ * a database: open and close, contains, deposit and withdraw.
+ * Each operation picks the next of 1,024 accounts in the database, in random
+ * order, so lookups are not always served from the same cache lines.
+ * The accounts that are opened and closed belong to holders named "Fresh",
+ * who are never generated by BenchmarkData, so they are never already in the
+ * database.
+ * Run another backend with "-p backend=concurrent" or "-p backend=offheap".
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class TransactionBenchmark {
+    private static final int KEYS = 1024;
+    private static final double AMOUNT = 0.01;
+    private static final double TOP_UP = 10_000.0;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"array"})
+    private String backend;
+
+    private AccountDatabase database;
+    private Account[] keys;
+    private Account[] topUps;
+    private Account[] fresh;
+    private int next;
+
+    /**
+     * Builds the database and the accounts the operations use
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Account[] accounts = BenchmarkData.accounts(size, BenchmarkData.SEED);
+        database = BenchmarkData.database(backend, accounts);
+        Random random = new Random(BenchmarkData.SEED);
+        keys = new Account[KEYS];
+        topUps = new Account[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            Account account = accounts[random.nextInt(size)];
+            keys[i] = key(account, account.getProfile(), AMOUNT);
+            topUps[i] = key(account, account.getProfile(), TOP_UP);
+        }
+        Account[] types = BenchmarkData.accounts(KEYS, BenchmarkData.SEED + 1);
+        fresh = new Account[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            Profile holder = types[i].getProfile();
+            fresh[i] = key(types[i], new Profile("Fresh" + i, holder.getLname(), holder.getDOB()), AMOUNT);
+        }
+    }
+
+    /**
+     * Deposits into the sampled accounts before each iteration, so withdrawals
+     * are not turned down for insufficient funds
+     */
+    @Setup(Level.Iteration)
+    public void topUp() {
+        for (Account topUp : topUps) {
+            database.deposit(topUp);
+        }
+    }
+
+    /**
+     * Creates an account of the same type as another account for a holder,
+     * whose balance is the amount of a transaction
+     */
+    private static Account key(Account account, Profile holder, double amount) {
+        if (account instanceof CollegeChecking) {
+            return new CollegeChecking(holder, amount);
+        } else if (account instanceof Checking) {
+            return new Checking(holder, amount);
+        } else if (account instanceof MoneyMarket) {
+            return new MoneyMarket(holder, amount);
+        }
+        return new Savings(holder, amount);
+    }
+
+    /**
+     * Returns the position of the next account to use
+     */
+    private int next() {
+        next = (next + 1) & (KEYS - 1);
+        return next;
+    }
+
+    /**
+     * Opens an account that is not in the database and closes it again, so
+     * the size of the database stays the same. The account is only closed if
+     * it was opened, so an account already in the database is never removed.
+     */
+    @Benchmark
+    public boolean openAndClose() {
+        Account account = fresh[next()];
+        return database.open(account) && database.close(account);
+    }
+
+    /**
+     * Looks up an account that is in the database
+     */
+    @Benchmark
+    public boolean contains() {
+        return database.contains(keys[next()]);
+    }
+
+    /**
+     * Deposits one cent
+     */
+    @Benchmark
+    public void deposit() {
+        database.deposit(keys[next()]);
+    }
+
+    /**
+     * Withdraws one cent
+     */
+    @Benchmark
+    public boolean withdraw() {
+        return database.withdraw(keys[next()]);
+    }
+}
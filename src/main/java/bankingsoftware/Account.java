@@ -1,39 +1,153 @@
 package bankingsoftware;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * Abstract Account class that is a general type of other account types
+ * Balances are kept in whole cents, see Money.
  * 
  * @author Frances Cortuna
  */
 public abstract class Account {
     protected Profile holder;
-    protected double balance;
+    protected long balance;
+
+    static final VarHandle BALANCE;
+
+    /** Balance of an account closed in lock-free mode, so compare-and-set updates of it fail */
+    static final long CLOSED = Long.MIN_VALUE;
+
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Account.class, "balance", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Creates an Account object with a holder and balance
      * 
      * @param holder  Profile of account
-     * @param balance Balance of account
+     * @param balance Balance of account in dollars
      */
     Account(Profile holder, double balance) {
         this.holder = holder;
-        this.balance = balance;
+        this.balance = Money.toCents(balance);
 
     }
 
     /**
-     * Abstract method that applies monthly interest fee to account balance
+     * Abstract method that computes one month of interest on a balance
+     *
+     * @param balance Balance in cents
+     * @return Monthly interest in cents
+     */
+    abstract long interestCents(long balance);
+
+    /**
+     * Abstract method that computes the monthly fee charged on a balance
+     *
+     * @param balance Balance in cents
+     * @return Monthly fee in cents
+     */
+    abstract long feeCents(long balance);
+
+    /**
+     * Applies monthly interest to account balance
      * 
      * @return Returns new balance with accrued monthly interest.
      */
-    public abstract double monthlyInterest();
+    public double monthlyInterest() {
+        balance += interestCents(balance);
+        return Money.toDollars(balance);
+    }
 
     /**
-     * Abstract method that takes out monthly fee to account balance
+     * Takes out monthly fee from account balance
      * 
      * @return Returns balance with monthly fee taken out.
      */
-    public abstract double monthlyFee();
+    public double monthlyFee() {
+        balance -= feeCents(balance);
+        return Money.toDollars(balance);
+    }
+
+    /**
+     * Adds an amount to the balance with a compare-and-set loop
+     *
+     * @param amount Amount in cents
+     * @return The balance after the amount was added, or CLOSED if the account is closed
+     * @throws ArithmeticException If the balance would overflow, in which case it is not changed
+     */
+    long addBalanceAtomic(long amount) {
+        long current = (long) BALANCE.getVolatile(this);
+        while (current != CLOSED) {
+            long updated = Math.addExact(current, amount);
+            long witness = (long) BALANCE.compareAndExchange(this, current, updated);
+            if (witness == current) {
+                return updated;
+            }
+            current = witness;
+        }
+        return CLOSED;
+    }
+
+    /**
+     * Takes an amount out of the balance with a compare-and-set loop,
+     * unless the balance is less than the amount
+     *
+     * @param amount Amount in cents
+     * @return The balance after the amount was taken out, -1 if the balance is
+     *         insufficient, or CLOSED if the account is closed
+     */
+    long subtractBalanceAtomic(long amount) {
+        long current = (long) BALANCE.getVolatile(this);
+        while (amount <= current) {
+            long witness = (long) BALANCE.compareAndExchange(this, current, current - amount);
+            if (witness == current) {
+                return current - amount;
+            }
+            current = witness;
+        }
+        return current == CLOSED ? CLOSED : -1;
+    }
+
+    /**
+     * Applies monthly interest and then the monthly fee to the balance in a
+     * single compare-and-set, so concurrent deposits and withdrawals are not lost.
+     * A closed account is left as it is.
+     */
+    void applyMonthEndAtomic() {
+        long current = (long) BALANCE.getVolatile(this);
+        while (current != CLOSED) {
+            long updated = current + interestCents(current);
+            updated -= feeCents(updated);
+            long witness = (long) BALANCE.compareAndExchange(this, current, updated);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
+        }
+    }
+
+    /**
+     * Sets the balance to CLOSED, so deposits and withdrawals that still hold
+     * the account fail instead of changing a balance nobody will see
+     */
+    void closeAtomic() {
+        BALANCE.setVolatile(this, CLOSED);
+    }
+
+    /**
+     * Checks if the account was closed in lock-free mode
+     *
+     * @return True if the balance is CLOSED
+     */
+    boolean isClosed() {
+        return (long) BALANCE.getVolatile(this) == CLOSED;
+    }
 
     /**
      * Abstract method that is a getter method to return initial of account type
@@ -50,18 +164,40 @@ public abstract class Account {
     public abstract String getAccountType();
 
     /**
-     * Abstract method that is a getter method to return monthly interest of account type
+     * Getter method to return monthly interest of account
      * 
      * @return Monthly interest amount
      */
-    public abstract double getInterest();
+    public double getInterest() {
+        return Money.toDollars(interestCents(balance));
+    }
 
     /**
-     * Abstract method that is a getter method to return monthly fee for account type
+     * Getter method to return monthly fee for account
      * 
      * @return Monthly fee amount
      */
-    public abstract double getMonthlyFee();
+    public double getMonthlyFee() {
+        return Money.toDollars(feeCents(balance));
+    }
+
+    /**
+     * Returns balance of account
+     *
+     * @return Balance in dollars
+     */
+    public double getBalance() {
+        return Money.toDollars(balance);
+    }
+
+    /**
+     * Returns balance of account in cents
+     *
+     * @return Balance in cents
+     */
+    public long getBalanceCents() {
+        return balance;
+    }
 
     /**
      * Returns holder of account
@@ -92,18 +228,71 @@ public abstract class Account {
         return holder.equals(other.getProfile());
     }
 
+    /**
+     * Returns a hash code consistent with equals(), based on account type and holder.
+     *
+     * @return Hash code of the account
+     */
+    @Override
+    public int hashCode() {
+        return 31 * getClass().hashCode() + holder.hashCode();
+    }
+
+    /**
+     * Abstract method that appends the account with all its information
+     * to a StringBuilder. This is the text returned by toString().
+     *
+     * @param output StringBuilder the account is appended to
+     */
+    public abstract void appendTo(StringBuilder output);
+
+    /**
+     * Appends the account with all its information, followed by its monthly
+     * fee and interest, to a StringBuilder.
+     *
+     * @param output StringBuilder the account is appended to
+     */
+    public void appendFeesInterestTo(StringBuilder output) {
+        appendTo(output);
+        output.append("::fee $");
+        Money.appendTo(output, feeCents(balance));
+        output.append("::monthly interest $");
+        Money.appendTo(output, interestCents(balance));
+    }
+
+    /**
+     * Appends the holder's name and date of birth followed by the balance,
+     * the part of the account text that is shared by all account types.
+     *
+     * @param output StringBuilder the holder and balance are appended to
+     */
+    void appendHolderBalance(StringBuilder output) {
+        output.append(holder.getFname()).append(' ').append(holder.getLname()).append(' ');
+        holder.getDOB().appendTo(output);
+        output.append("::Balance $");
+        Money.appendTo(output, balance);
+    }
+
     /**
      * Returns a string for the account with all its information
      * 
      * @return String to represent the account
      */
     @Override
-    public abstract String toString();
+    public String toString() {
+        StringBuilder output = new StringBuilder(64);
+        appendTo(output);
+        return output.toString();
+    }
 
     /**
      * Returns a string for the account with all its information
      * 
      * @return String to represent the account
      */
-    public abstract String toStringFeesInterest();
+    public String toStringFeesInterest() {
+        StringBuilder output = new StringBuilder(96);
+        appendFeesInterestTo(output);
+        return output.toString();
+    }
 }
@@ -1,6 +1,14 @@
 package bankingsoftware;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.StringBuilder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * AccountDatabase class that is a linear data structure to hold the list of
@@ -11,19 +19,66 @@ import java.lang.StringBuilder;
  */
 public class AccountDatabase {
     private static final int INITIAL_CAPACITY = 4;
-    private static final int GROWTH_FACTOR = 4;
+    private static final double DEFAULT_GROWTH_FACTOR = 1.5;
+    private static final int SHRINK_THRESHOLD = 4;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
     private static final int NOT_FOUND = -1;
+    private static final int LINE_CAPACITY = 128;
+    private static final int PARALLEL_THRESHOLD = 4 * MonthEndTask.CHUNK_SIZE;
+
+    static final int CHECKING = 0;
+    static final int COLLEGE_CHECKING = 1;
+    static final int MONEY_MARKET = 2;
+    static final int SAVINGS = 3;
+    static final int NUM_TYPES = 4;
 
     private Account[] accounts;
     private int numAcct;
+    private final HashMap<Account, Integer> index;
+    private final HashMap<Profile, Account[]> holders;
+    private final ProfileRegistry profiles = new ProfileRegistry();
+    private final double growthFactor;
+    private Account[] sortedView;
+    private TransactionJournal journal;
+    private DatabaseMetrics metrics;
 
     /**
      * Constructor for AccountDatabase object to initialize object with initial
      * capacity of 4 and initial numAcct as 0
      */
     public AccountDatabase() {
-        accounts = new Account[INITIAL_CAPACITY];
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor for AccountDatabase object that reserves room for a known
+     * number of accounts, e.g. before loading accounts from a file.
+     *
+     * @param initialCapacity Number of accounts to reserve room for
+     */
+    public AccountDatabase(int initialCapacity) {
+        this(initialCapacity, DEFAULT_GROWTH_FACTOR);
+    }
+
+    /**
+     * Constructor for AccountDatabase object with an initial capacity and a growth policy.
+     * When the array is full, its capacity is multiplied by the growth factor.
+     *
+     * @param initialCapacity Number of accounts to reserve room for
+     * @param growthFactor    Factor the capacity is multiplied by when the array is full, greater than 1
+     */
+    public AccountDatabase(int initialCapacity, double growthFactor) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity cannot be negative: " + initialCapacity);
+        }
+        if (!(growthFactor > 1.0)) {
+            throw new IllegalArgumentException("Growth factor must be greater than 1: " + growthFactor);
+        }
+        accounts = new Account[Math.max(initialCapacity, INITIAL_CAPACITY)];
         numAcct = 0;
+        index = new HashMap<>((int) (accounts.length / 0.75f) + 1);
+        holders = new HashMap<>((int) (accounts.length / 0.75f) + 1);
+        this.growthFactor = growthFactor;
     }
 
     /**
@@ -44,33 +99,296 @@ public class AccountDatabase {
         return accounts;
     }
 
+    /**
+     * Attaches a journal that records every change made to the database from
+     * now on, see TransactionJournal.open
+     *
+     * @param journal Journal to record changes in, or null to stop recording
+     */
+    public void setJournal(TransactionJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Getter method to get the journal changes are recorded in
+     *
+     * @return Journal, or null if changes are not recorded
+     */
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Starts recording metrics of the operations on the database.
+     * Should be called before the database is shared between threads.
+     *
+     * @param metrics Metrics to record operations in, or null to stop recording
+     */
+    public void setMetrics(DatabaseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Getter method to get the registry of the canonical profiles of the
+     * holders in the database. Profiles built to look up an account, e.g.
+     * from a form, can be swapped for the canonical one with
+     * ProfileRegistry.canonical.
+     *
+     * @return Registry of holder profiles
+     */
+    public ProfileRegistry getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * Getter method to get the metrics operations are recorded in
+     *
+     * @return Metrics, or null if operations are not recorded
+     */
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the time an operation starts, if metrics are recorded
+     *
+     * @return System.nanoTime(), or 0 if there are no metrics
+     */
+    long startTiming() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Counts an operation in the metrics, if there are any
+     *
+     * @param operation Kind of operation
+     * @param start     Time returned by startTiming when the operation started
+     */
+    void stopTiming(DatabaseMetrics.Operation operation, long start) {
+        DatabaseMetrics current = metrics;
+        if (current != null && start != 0) {
+            current.record(operation, start);
+        }
+    }
+
+    /**
+     * Counts a drop of the sorted view in the metrics, if there are any
+     */
+    void countSortInvalidation() {
+        DatabaseMetrics current = metrics;
+        if (current != null) {
+            current.sortInvalidated();
+        }
+    }
+
+    /**
+     * Records an opened account in the journal, if there is one
+     *
+     * @return Position to pass to awaitJournal
+     */
+    long journalOpen(Account account) {
+        return journal == null ? 0 : journal.recordOpen(account);
+    }
+
+    /**
+     * Records a closed account in the journal, if there is one
+     *
+     * @return Position to pass to awaitJournal
+     */
+    long journalClose(Account account) {
+        return journal == null ? 0 : journal.recordClose(account);
+    }
+
+    /**
+     * Records a deposit in the journal, if there is one
+     *
+     * @return Position to pass to awaitJournal
+     */
+    long journalDeposit(Account account, long cents) {
+        return journal == null ? 0 : journal.recordDeposit(account, cents);
+    }
+
+    /**
+     * Records an applied withdrawal in the journal, if there is one
+     *
+     * @return Position to pass to awaitJournal
+     */
+    long journalWithdraw(Account account, long cents) {
+        return journal == null ? 0 : journal.recordWithdraw(account, cents);
+    }
+
+    /**
+     * Records a month-end update in the journal, if there is one
+     *
+     * @return Position to pass to awaitJournal
+     */
+    long journalMonthEnd() {
+        return journal == null ? 0 : journal.recordMonthEnd();
+    }
+
+    /**
+     * Waits until the journal is durable up to a position, without taking a
+     * snapshot. A change recorded before it is made is only made once this
+     * returns, so a change is never kept in memory if the journal fails.
+     *
+     * @param position Position returned by one of the journal methods
+     * @throws UncheckedIOException If the journal could not be written
+     */
+    void awaitJournal(long position) {
+        if (journal != null && position > 0) {
+            try {
+                journal.awaitDurable(position);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot in the background if the journal's segment has grown
+     * past its size. Called once a change is both durable and made, so the
+     * snapshot includes every change recorded in the older segments.
+     */
+    void snapshotIfDue() {
+        TransactionJournal current = journal;
+        if (current != null && current.claimSnapshot()) {
+            snapshot().whenComplete((file, error) -> current.snapshotDone());
+        }
+    }
+
+    /**
+     * Takes a snapshot of the accounts and writes it to the journal directory
+     * on a background thread. The journal starts a new segment at the same
+     * point, and once the snapshot is on disk the older segments are deleted,
+     * so the next start only replays the changes made after the snapshot.
+     * Transactions are held up only while the accounts are copied.
+     *
+     * @return Future that completes with the snapshot file once it is written
+     * @throws IllegalStateException If the database has no journal
+     */
+    public CompletableFuture<Path> snapshot() {
+        TransactionJournal current = journal;
+        if (current == null) {
+            throw new IllegalStateException("A snapshot needs a journal.");
+        }
+        AccountSnapshot snapshot;
+        try {
+            snapshot = captureSnapshot(current);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return current.writeSnapshot(snapshot);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, task -> Thread.ofPlatform().name("snapshot-writer").daemon().start(task));
+    }
+
+    /**
+     * Starts a new journal segment and copies the accounts as of that point
+     *
+     * @param journal Journal of the database
+     * @return Copy of the accounts
+     * @throws IOException If the journal could not be written
+     */
+    AccountSnapshot captureSnapshot(TransactionJournal journal) throws IOException {
+        long segment = journal.roll();
+        return new AccountSnapshot(accounts, numAcct, segment);
+    }
+
     /**
      * Find an Account in array of Accounts.
+     * Looks up the account type and profile in the index instead of scanning the array.
      * If Account is in the array, return its index. If not, return -1
      *
      * @param account Account to find in the array
      * @return Index of account in array or -1 if not found in array.
      */
     private int find(Account account) {
-        for (int i = 0; i < numAcct; i++) {
-            if (accounts[i].equals(account)) {
-                return i;
+        Integer position = index.get(account);
+        if (position == null) {
+            return NOT_FOUND;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the account of the given holder whose type has the given initial.
+     *
+     * @param holder             Profile of the account holder
+     * @param accountTypeInitial Initial of the account type, e.g. "CC"
+     * @return The account in the database, or null if the holder has no such account
+     */
+    public Account getAccount(Profile holder, String accountTypeInitial) {
+        Account[] held = holders.get(holder);
+        if (held == null) {
+            return null;
+        }
+        for (Account account : held) {
+            if (account != null && account.getAccountTypeInitial().equals(accountTypeInitial)) {
+                return account;
             }
         }
-        return NOT_FOUND;
+        return null;
     }
 
     /**
-     * When array is full, grow it's capacity by 4
+     * Checks if a holder has any account of the given family.
+     * For example, Checking.class matches both Checking and College Checking accounts.
+     *
+     * @param holder Profile of the account holder
+     * @param family Account class the holder's accounts are checked against
+     * @return True if the holder has an account that is an instance of family, false otherwise
      */
-    private void grow() {
-        int newCapacity = accounts.length + GROWTH_FACTOR;
-        Account[] newAccountArr = new Account[newCapacity];
+    public boolean holdsAccountOfType(Profile holder, Class<? extends Account> family) {
+        Account[] held = holders.get(holder);
+        if (held == null) {
+            return false;
+        }
+        for (Account account : held) {
+            if (family.isInstance(account)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        for (int i = 0; i < numAcct; i++) {
-            newAccountArr[i] = accounts[i];
+    /**
+     * Makes sure the array can hold at least the given number of accounts
+     * without growing again.
+     *
+     * @param minCapacity Number of accounts the array must be able to hold
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > accounts.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Grows the array's capacity by the growth factor, or to minCapacity if that is larger
+     *
+     * @param minCapacity Number of accounts the array must be able to hold
+     */
+    private void grow(int minCapacity) {
+        if (minCapacity > MAX_CAPACITY) {
+            throw new OutOfMemoryError("Account database cannot hold " + minCapacity + " accounts");
+        }
+        long grownCapacity = (long) (accounts.length * growthFactor);
+        int newCapacity = (int) Math.min(Math.max(grownCapacity, accounts.length + 1L), MAX_CAPACITY);
+        accounts = Arrays.copyOf(accounts, Math.max(newCapacity, minCapacity));
+    }
+
+    /**
+     * When the array is at most a quarter full, halve its capacity
+     * so closed accounts do not keep a mostly empty array alive
+     */
+    private void shrinkIfSparse() {
+        if (accounts.length > INITIAL_CAPACITY && numAcct <= accounts.length / SHRINK_THRESHOLD) {
+            accounts = Arrays.copyOf(accounts, Math.max(accounts.length / 2, INITIAL_CAPACITY));
         }
-        accounts = newAccountArr;
     }
 
     /**
@@ -89,38 +407,253 @@ public class AccountDatabase {
 
     /**
      * Adds a new account to the array.
-     * Returns true if new account is added, false otherwise.
+     * Returns true if new account is added, false if it is already in the array.
      *
      * @param account Account to be added to array
      * @return True if new account is added, false otherwise
      */
     public boolean open(Account account) {
+        return openUnlessHeld(account, null);
+    }
+
+    /**
+     * Adds a new account unless the holder already has an account of a family.
+     * For example, Checking.class keeps a holder to one of Checking and College
+     * Checking. The check and the add are a single step, so on a
+     * ConcurrentAccountDatabase no other thread can open an account of the
+     * family for the same holder in between.
+     *
+     * If the database has a journal, the account is only added once its
+     * record is durable. The time recorded in the metrics includes the wait
+     * for the journal.
+     *
+     * @param account Account to be added
+     * @param family  Account class the holder must not already have an account of, or null for no check
+     * @return True if new account is added, false if it or an account of the family is already in the database
+     * @throws UncheckedIOException If the journal could not be written, in which case the account is not added
+     */
+    public boolean openUnlessHeld(Account account, Class<? extends Account> family) {
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            if (!openDurably(account, family)) {
+                return false;
+            }
+            snapshotIfDue();
+            return true;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.OPEN, start);
+            event.commit(DatabaseMetrics.Operation.OPEN, account);
+        }
+    }
+
+    /**
+     * Records a new account in the journal and adds it once the record is
+     * durable, unless the account or an account of the family is already in
+     * the database
+     *
+     * @param account Account to be added
+     * @param family  Account class the holder must not already have an account of, or null for no check
+     * @return True if new account is added, false otherwise
+     * @throws UncheckedIOException If the journal could not be written, in which case the account is not added
+     */
+    boolean openDurably(Account account, Class<? extends Account> family) {
+        if (contains(account) || family != null && holdsAccountOfType(account.holder, family)) {
+            return false;
+        }
+        awaitJournal(journalOpen(account));
+        return add(account);
+    }
+
+    /**
+     * Opens a batch of accounts with one wait for the journal, e.g. the
+     * accounts of a file being loaded.
+     * An account is not opened if it is already in the database or earlier
+     * in the batch, or if it is an instance of family and its holder already
+     * has an account of the family. If the database has a journal, every open
+     * is checked and recorded first, and the accounts are only added once all
+     * the records are durable.
+     *
+     * @param accounts Accounts to open
+     * @param size     Number of accounts in the batch
+     * @param family   Account class a holder may only have one account of, or null for no check
+     * @return For each account, true if it is opened
+     * @throws UncheckedIOException If the journal could not be written, in which case no account is added
+     */
+    boolean[] openAll(Account[] accounts, int size, Class<? extends Account> family) {
+        boolean[] opened = new boolean[size];
+        if (journal == null) {
+            for (int i = 0; i < size; i++) {
+                Account account = accounts[i];
+                opened[i] = openDurably(account, family != null && family.isInstance(account) ? family : null);
+            }
+            return opened;
+        }
+        HashSet<Account> added = new HashSet<>();
+        HashSet<Profile> addedToFamily = new HashSet<>();
+        long position = 0;
+        for (int i = 0; i < size; i++) {
+            Account account = accounts[i];
+            boolean inFamily = family != null && family.isInstance(account);
+            if (contains(account) || added.contains(account) || inFamily
+                    && (holdsAccountOfType(account.holder, family) || addedToFamily.contains(account.holder))) {
+                continue;
+            }
+            added.add(account);
+            if (inFamily) {
+                addedToFamily.add(account.holder);
+            }
+            position = journalOpen(account);
+            opened[i] = true;
+        }
+        awaitJournal(position);
+        for (int i = 0; i < size; i++) {
+            if (opened[i]) {
+                addDurable(accounts[i]);
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Adds an account whose open has been checked and is durable in the journal
+     *
+     * @param account Account to be added
+     */
+    void addDurable(Account account) {
+        add(account);
+    }
+
+    /**
+     * Adds a new account to the array and the indexes.
+     * The holder of the account is replaced by its canonical profile, so all
+     * accounts of a holder share one Profile.
+     *
+     * @param account Account to be added
+     * @return True if new account is added, false if it is already in the array
+     */
+    boolean add(Account account) {
+        if (find(account) != NOT_FOUND) {
+            return false;
+        }
         if (numAcct == accounts.length) {
-            grow();
+            grow(numAcct + 1);
         }
+        account.holder = profiles.intern(account.holder);
         accounts[numAcct] = account;
+        index.put(account, numAcct);
+        addHolding(account);
         numAcct += 1;
+        invalidateSortedView();
+        return true;
+    }
+
+    /**
+     * Removes an account from the array and the indexes.
+     * The last account is moved into the freed slot, so removal takes
+     * constant time after the lookup.
+     *
+     * @param account Account to be removed
+     * @return True if the account is removed, false if it is not in the array
+     */
+    boolean remove(Account account) {
+        int indexOfAcc = find(account);
+        if (indexOfAcc == NOT_FOUND) {
+            return false;
+        }
+        index.remove(accounts[indexOfAcc]);
+        removeHolding(accounts[indexOfAcc]);
+        int last = numAcct - 1;
+        if (indexOfAcc != last) {
+            accounts[indexOfAcc] = accounts[last];
+            index.put(accounts[indexOfAcc], indexOfAcc);
+        }
+        accounts[last] = null;
+        numAcct -= 1;
+        invalidateSortedView();
+        shrinkIfSparse();
         return true;
     }
 
     /**
      * Removes a given account from array.
+     * The last account is moved into the freed slot, so removal takes
+     * constant time after the lookup.
+     * If the database has a journal, the account is only removed once its
+     * record is durable.
      * Returns true if account is removed, false otherwise
      *
      * @param account Account to be removed from array.
      * @return True if given account is removed, false otherwise.
+     * @throws UncheckedIOException If the journal could not be written, in which case the account is not removed
      */
     public boolean close(Account account) {
-        int indexOfAcc = find(account);
-        if (indexOfAcc != NOT_FOUND) {
-            for (int i = indexOfAcc; i < numAcct - 1; i++) {
-                accounts[i] = accounts[i + 1];
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            if (!contains(account)) {
+                return false;
             }
-            numAcct -= 1;
-            accounts[numAcct] = null;
+            awaitJournal(journalClose(account));
+            remove(account);
+            snapshotIfDue();
             return true;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.CLOSE, start);
+            event.commit(DatabaseMetrics.Operation.CLOSE, account);
         }
-        return false;
+    }
+
+    /**
+     * Removes every account and resets the array to its initial capacity
+     */
+    void clear() {
+        accounts = new Account[INITIAL_CAPACITY];
+        numAcct = 0;
+        index.clear();
+        holders.clear();
+        profiles.clear();
+        invalidateSortedView();
+    }
+
+    /**
+     * Drops the sorted view after an account is opened or closed, counting it in the metrics
+     */
+    private void invalidateSortedView() {
+        if (sortedView != null) {
+            sortedView = null;
+            countSortInvalidation();
+        }
+    }
+
+    /**
+     * Adds an account to its holder's entry in the holder index
+     *
+     * @param account Account being opened, with its canonical holder
+     */
+    void addHolding(Account account) {
+        holders.computeIfAbsent(account.holder, holder -> new Account[NUM_TYPES])[typeOrder(account)] = account;
+    }
+
+    /**
+     * Removes an account from its holder's entry in the holder index.
+     * The entry and the canonical profile are dropped once the holder has no
+     * accounts left.
+     *
+     * @param account Account being closed
+     */
+    void removeHolding(Account account) {
+        Account[] held = holders.get(account.holder);
+        held[typeOrder(account)] = null;
+        for (Account other : held) {
+            if (other != null) {
+                return;
+            }
+        }
+        holders.remove(account.holder);
+        profiles.remove(account.holder);
     }
 
     /**
@@ -128,8 +661,8 @@ public class AccountDatabase {
      * 
      * @return False if account balance is less than 2000, true otherwise
      */
-    private boolean loyaltyStatus(MoneyMarket account) {
-        if (account.balance < 2000.0) {
+    private static boolean loyaltyStatus(MoneyMarket account) {
+        if (account.balance < MoneyMarket.LOYAL_BALANCE) {
             account.isLoyal = false;
             return false;
         } else {
@@ -143,24 +676,53 @@ public class AccountDatabase {
      * 
      * @return Withdrawal fee
      */
-    private void withdrawalFee(MoneyMarket account) {
+    private static void withdrawalFee(MoneyMarket account) {
         account.setWithdrawal(account.getWithdrawal()+1);
     }
 
     /**
      * Checks if account has sufficient balance for withdrawal and withdraw from
      * account
-     * Returns false if balance is insufficient for withdrawal
+     * Returns false if balance is insufficient for withdrawal.
+     * If the database has a journal, the balance is only changed once the
+     * withdrawal is durable.
      *
      * @param account Account to withdraw from
      * @return false if insufficient
+     * @throws UncheckedIOException If the journal could not be written, in which case the balance is not changed
      */
     public boolean withdraw(Account account) {
-        Account accountInArray = accounts[find(account)];
-        if (account.balance <= accountInArray.balance) {
-            accountInArray.balance -= account.balance;
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            Account accountInArray = accounts[find(account)];
+            if (account.balance > accountInArray.balance) {
+                return false;
+            }
+            awaitJournal(journalWithdraw(account, account.balance));
+            debit(accountInArray, account.balance);
+            snapshotIfDue();
+            return true;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.WITHDRAW, start);
+            event.commit(DatabaseMetrics.Operation.WITHDRAW, account);
+        }
+    }
+
+    /**
+     * Withdraws an amount from an account held in the database and updates
+     * the loyalty and withdrawal count of a Money Market account
+     *
+     * @param accountInArray Account held in the database
+     * @param amount         Amount to withdraw in cents
+     * @return False if the balance is insufficient, true otherwise
+     */
+    static boolean debit(Account accountInArray, long amount) {
+        if (amount <= accountInArray.balance) {
+            accountInArray.balance -= amount;
 
-            if (accountInArray.getAccountTypeInitial().equals("MM")) {
+            if (accountInArray instanceof MoneyMarket) {
                 loyaltyStatus((MoneyMarket) accountInArray);
                 withdrawalFee((MoneyMarket) accountInArray);
             }
@@ -171,137 +733,466 @@ public class AccountDatabase {
     }
 
     /**
-     * Adds money to an account
+     * Adds money to an account.
+     * If the database has a journal, the balance is only changed once the
+     * deposit is durable.
      *
      * @param account Account to deposit into
+     * @throws ArithmeticException  If the balance would overflow, in which case it is not changed
+     * @throws UncheckedIOException If the journal could not be written, in which case the balance is not changed
      */
     public void deposit(Account account) {
-        Account accountInArray = accounts[find(account)];
-        accountInArray.balance += account.balance;
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            Account accountInArray = accounts[find(account)];
+            checkCredit(accountInArray, account.balance);
+            awaitJournal(journalDeposit(account, account.balance));
+            credit(accountInArray, account.balance);
+            snapshotIfDue();
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.DEPOSIT, start);
+            event.commit(DatabaseMetrics.Operation.DEPOSIT, account);
+        }
+    }
+
+    /**
+     * Checks that a deposit can be made before it is recorded in the journal
+     *
+     * @param accountInArray Account held in the database
+     * @param amount         Amount to deposit in cents
+     * @throws ArithmeticException If the balance would overflow
+     */
+    static void checkCredit(Account accountInArray, long amount) {
+        Math.addExact(accountInArray.balance, amount);
+    }
+
+    /**
+     * Deposits an amount into an account held in the database and updates
+     * the loyalty of a Money Market account
+     *
+     * @param accountInArray Account held in the database
+     * @param amount         Amount to deposit in cents
+     * @throws ArithmeticException If the balance would overflow, in which case it is not changed
+     */
+    static void credit(Account accountInArray, long amount) {
+        accountInArray.balance = Math.addExact(accountInArray.balance, amount);
 
-        if (accountInArray.getAccountTypeInitial().equals("MM")) {
+        if (accountInArray instanceof MoneyMarket) {
             loyaltyStatus((MoneyMarket) accountInArray);
         }
     }
 
     /**
-     * Prints accounts in array
+     * Applies a batch of deposits and withdrawals in one pass.
+     * The transactions are grouped by account, each account is looked up
+     * once, and its transactions are applied in the order they were added to
+     * the batch. A withdrawal that exceeds the balance is not applied.
+     * If the database has a journal, the result of every transaction is
+     * worked out and recorded first, and the batch is only applied once the
+     * records are durable, so the whole batch shares one wait for the journal.
+     *
+     * @param batch Transactions to apply
+     * @return Result of each transaction, in the order of the batch:
+     *         TransactionBatch.APPLIED, INSUFFICIENT_FUNDS or NOT_FOUND
+     * @throws ArithmeticException  If a deposit would overflow a balance; with a
+     *                              journal no transaction is applied, without one
+     *                              the transactions applied before it are kept
+     * @throws UncheckedIOException If the journal could not be written, in which
+     *                              case no transaction is applied
      */
-    private String print() {
-        StringBuilder output = new StringBuilder();
-        for (int i = 0; i < numAcct; i++) {
-            output.append(accounts[i].toString());
-            output.append("\n");
+    public byte[] apply(TransactionBatch batch) {
+        long startNanos = startTiming();
+        try {
+            long[] order = batch.groupedOrder();
+            byte[] results = new byte[batch.size()];
+            if (journal == null) {
+                int start = 0;
+                while (start < results.length) {
+                    int end = groupEnd(batch, order, start);
+                    applyGroup(batch, order, start, end, results);
+                    start = end;
+                }
+            } else {
+                applyDurably(batch, order, results);
+                snapshotIfDue();
+            }
+            return results;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.BATCH, startNanos);
         }
-        return output.toString();
     }
 
     /**
-     * Swap the order of account one and account two.
+     * Returns the entry of order after the last transaction on the same
+     * account as the transaction at start
      *
-     * @param accountOne  Index of account one to be swapped with account two
-     * @param accountTwo  Index of account two to be swapped with account one
+     * @param batch Batch holding the transactions
+     * @param order Transactions grouped by account, see TransactionBatch.groupedOrder
+     * @param start First entry of order on the account
+     * @return Entry of order after the last one on the account
      */
-    private void swap(int accountOne, int accountTwo) {
-        Account temp = accounts[accountOne];
-        accounts[accountOne] = accounts[accountTwo];
-        accounts[accountTwo] = temp;
+    private static int groupEnd(TransactionBatch batch, long[] order, int start) {
+        int first = (int) order[start];
+        int end = start + 1;
+        while (end < batch.size() && batch.sameAccount(first, (int) order[end])) {
+            end++;
+        }
+        return end;
     }
 
     /**
-     * Compares account type of 2 accounts
-     * Returns positive number if account one's type is after account two
-     * Returns negative number if account one's type is before account two
-     * Returns zero of both account type are the same
+     * Works out the result of every transaction of a batch, records the
+     * applied ones in the journal, waits for the records to be durable and
+     * only then applies them.
+     * The results are worked out on a copy of each balance, so a deposit that
+     * would overflow fails the batch before anything is recorded.
      *
-     * @param accountOne Account one to be compared
-     * @param accountTwo Account two to be compared
-     * @return a positive number, a negative number or a zero depending
-     *         on comparison results
+     * @param batch   Transactions to apply
+     * @param order   Transactions grouped by account, see TransactionBatch.groupedOrder
+     * @param results Result of each transaction
+     * @throws ArithmeticException  If a deposit would overflow a balance, in which case nothing is recorded
+     * @throws UncheckedIOException If the journal could not be written, in which case nothing is applied
      */
-    private int compareAcctType(Account accountOne, Account accountTwo) {
-        String accountTypeOne = accountOne.getClass().getSimpleName();
-        String accountTypeTwo = accountTwo.getClass().getSimpleName();
+    void applyDurably(TransactionBatch batch, long[] order, byte[] results) {
+        int size = batch.size();
+        Account[] targets = new Account[size];
+        HashMap<Account, long[]> balances = new HashMap<>();
+        int start = 0;
+        while (start < size) {
+            int end = groupEnd(batch, order, start);
+            int first = (int) order[start];
+            Account target = batchAccount(batch.holder(first), batch.type(first));
+            long[] balance = target == null ? null
+                    : balances.computeIfAbsent(target, account -> new long[] {account.balance});
+            for (int i = start; i < end; i++) {
+                int transaction = (int) order[i];
+                long amount = batch.amount(transaction);
+                if (balance == null) {
+                    results[transaction] = TransactionBatch.NOT_FOUND;
+                } else if (batch.op(transaction) == TransactionBatch.DEPOSIT) {
+                    balance[0] = Math.addExact(balance[0], amount);
+                    results[transaction] = TransactionBatch.APPLIED;
+                } else if (amount <= balance[0]) {
+                    balance[0] -= amount;
+                    results[transaction] = TransactionBatch.APPLIED;
+                } else {
+                    results[transaction] = TransactionBatch.INSUFFICIENT_FUNDS;
+                }
+            }
+            targets[start] = target;
+            start = end;
+        }
+
+        long position = 0;
+        start = 0;
+        while (start < size) {
+            int end = groupEnd(batch, order, start);
+            for (int i = start; i < end; i++) {
+                int transaction = (int) order[i];
+                if (results[transaction] == TransactionBatch.APPLIED) {
+                    long amount = batch.amount(transaction);
+                    position = batch.op(transaction) == TransactionBatch.DEPOSIT
+                            ? journalDeposit(targets[start], amount) : journalWithdraw(targets[start], amount);
+                }
+            }
+            start = end;
+        }
+        awaitJournal(position);
 
-        return accountTypeOne.compareTo(accountTypeTwo);
+        start = 0;
+        while (start < size) {
+            int end = groupEnd(batch, order, start);
+            int first = (int) order[start];
+            Account target = targets[start] == null ? null : batchAccount(batch.holder(first), batch.type(first));
+            for (int i = start; target != null && i < end; i++) {
+                int transaction = (int) order[i];
+                if (results[transaction] != TransactionBatch.APPLIED) {
+                    continue;
+                } else if (batch.op(transaction) == TransactionBatch.DEPOSIT) {
+                    credit(target, batch.amount(transaction));
+                } else {
+                    debit(target, batch.amount(transaction));
+                }
+            }
+            if (target != null) {
+                storeBatchAccount(target);
+            }
+            start = end;
+        }
     }
 
     /**
-     * Compares profiles of two accounts
-     * Returns positive number if account one's profile is after account two
-     * Returns negative number if account one's profile is before account two
-     * Returns zero of both account profile are the same
+     * Returns the account a batch transaction on a holder's account of a type is applied to
      *
-     * @param accountOne Account one to be compared
-     * @param accountTwo Account two to be compared
-     * @return a positive number, a negative number or a zero depending
-     *         on comparison results
+     * @param holder Profile of the account holder
+     * @param type   Type rank of the account
+     * @return The account, or null if the holder has no account of that type
      */
-    private int compareProfile(Account accountOne, Account accountTwo) {
-        Profile accountProfileOne = accountOne.holder;
-        Profile accountProfileTwo = accountTwo.holder;
+    Account batchAccount(Profile holder, int type) {
+        return heldAccount(holders.get(holder), type);
+    }
 
-        return accountProfileOne.compareTo(accountProfileTwo);
+    /**
+     * Keeps the changes a batch made to an account returned by batchAccount.
+     * Does nothing, since the account is the one held in the database.
+     *
+     * @param account Account returned by batchAccount
+     */
+    void storeBatchAccount(Account account) {
     }
 
     /**
-     * If accounts are switched, it sorts the newly switched account by comparing to
-     * previous accounts
-     * Sorts by account type, followed by account profile.
-     * 
-     * @param accountToSort Account that was switched
+     * Applies the transactions of a batch that are on one account, when the
+     * database has no journal
+     *
+     * @param batch   Batch holding the transactions
+     * @param order   Transactions grouped by account, see TransactionBatch.groupedOrder
+     * @param start   First entry of order on the account
+     * @param end     Entry of order after the last one on the account
+     * @param results Result of each transaction
      */
-    private void sortAccountTypeProfile(int accountToSort) {
-        while (accountToSort != 0) {
-            int accountTypeCompare = compareAcctType(accounts[accountToSort], accounts[accountToSort - 1]);
+    void applyGroup(TransactionBatch batch, long[] order, int start, int end, byte[] results) {
+        int first = (int) order[start];
+        applyGroup(batchAccount(batch.holder(first), batch.type(first)), batch, order, start, end, results, false);
+    }
 
-            if (accountTypeCompare < 0) {
-                swap(accountToSort, accountToSort - 1);
-                accountToSort -= 1;
+    /**
+     * Applies the transactions of a batch to an account held in the database
+     *
+     * @param accountInArray Account held in the database, or null if there is none
+     * @param batch          Batch holding the transactions
+     * @param order          Transactions grouped by account
+     * @param start          First entry of order on the account
+     * @param end            Entry of order after the last one on the account
+     * @param results        Result of each transaction
+     * @param atomic         True to update the balance with atomic operations
+     */
+    void applyGroup(Account accountInArray, TransactionBatch batch, long[] order, int start, int end,
+                    byte[] results, boolean atomic) {
+        for (int i = start; i < end; i++) {
+            int transaction = (int) order[i];
+            long amount = batch.amount(transaction);
+            if (accountInArray == null) {
+                results[transaction] = TransactionBatch.NOT_FOUND;
+            } else if (atomic) {
+                results[transaction] = batch.op(transaction) == TransactionBatch.DEPOSIT
+                        ? creditAtomic(accountInArray, amount) : debitAtomic(accountInArray, amount);
+            } else if (batch.op(transaction) == TransactionBatch.DEPOSIT) {
+                credit(accountInArray, amount);
+                results[transaction] = TransactionBatch.APPLIED;
+            } else if (debit(accountInArray, amount)) {
+                results[transaction] = TransactionBatch.APPLIED;
+            } else {
+                results[transaction] = TransactionBatch.INSUFFICIENT_FUNDS;
+            }
+        }
+    }
 
-            } else if (accountTypeCompare == 0) {
-                int accountProfileCompare = compareProfile(accounts[accountToSort], accounts[accountToSort - 1]);
+    /**
+     * Returns a holder's account of a type from the holder's entry in the holder index
+     *
+     * @param held Accounts of the holder indexed by type rank, or null if the holder has none
+     * @param type Type rank of the account
+     * @return The account, or null if the holder has no account of that type
+     */
+    static Account heldAccount(Account[] held, int type) {
+        return held == null ? null : held[type];
+    }
 
-                if (accountProfileCompare < 0) {
-                    swap(accountToSort, accountToSort - 1);
-                    accountToSort -= 1;
+    /**
+     * Withdraws an amount from an account held in the database without locking.
+     * The balance is checked and debited in a compare-and-set loop, and the
+     * withdrawal count and loyalty of a Money Market account are updated atomically.
+     * An account closed by another thread in the meantime is not changed.
+     *
+     * @param accountInArray Account held in the database
+     * @param amount         Amount to withdraw in cents
+     * @return TransactionBatch.APPLIED, INSUFFICIENT_FUNDS, or NOT_FOUND if the account was closed
+     */
+    static byte debitAtomic(Account accountInArray, long amount) {
+        long updated = accountInArray.subtractBalanceAtomic(amount);
+        if (updated == Account.CLOSED) {
+            return TransactionBatch.NOT_FOUND;
+        }
+        if (updated < 0) {
+            return TransactionBatch.INSUFFICIENT_FUNDS;
+        }
+        if (accountInArray instanceof MoneyMarket) {
+            ((MoneyMarket) accountInArray).addWithdrawalAtomic();
+            ((MoneyMarket) accountInArray).updateLoyaltyAtomic(updated);
+        }
+        return TransactionBatch.APPLIED;
+    }
 
-                } else {
-                    break;
-                }
-            } else {
-                break;
-            }
+    /**
+     * Deposits an amount into an account held in the database without locking,
+     * with a compare-and-set loop on the balance.
+     * An account closed by another thread in the meantime is not changed.
+     *
+     * @param accountInArray Account held in the database
+     * @param amount         Amount to deposit in cents
+     * @return TransactionBatch.APPLIED, or NOT_FOUND if the account was closed
+     * @throws ArithmeticException If the balance would overflow, in which case it is not changed
+     */
+    static byte creditAtomic(Account accountInArray, long amount) {
+        long updated = accountInArray.addBalanceAtomic(amount);
+        if (updated == Account.CLOSED) {
+            return TransactionBatch.NOT_FOUND;
         }
+        if (accountInArray instanceof MoneyMarket) {
+            ((MoneyMarket) accountInArray).updateLoyaltyAtomic(updated);
+        }
+        return TransactionBatch.APPLIED;
     }
 
     /**
-     * Sorts and prints account array in order of account type and profile
+     * Checks if balances may be updated by other threads without a lock while a
+     * report runs, in which case month-end updates use compare-and-set
+     *
+     * @return False, since AccountDatabase is not shared between threads
      */
-    public String printSorted() {
-        sortAccounts();
-        return print();
+    boolean atomicBalances() {
+        return false;
     }
 
     /**
-     * Sorts account array in order of account type and profile
+     * Returns the rank of an account's type in sorted order.
+     * Accounts are ordered by the name of their class, so Checking comes first,
+     * followed by CollegeChecking, MoneyMarket and Savings.
+     *
+     * @param account Account to rank
+     * @return Rank of the account type, from 0 to NUM_TYPES - 1
      */
-    private void sortAccounts() {
-        for (int i = 0; i < numAcct - 1; i++) {
-            int accountTypeCompare = compareAcctType(accounts[i], accounts[i + 1]);
-            if (accountTypeCompare > 0) {
-                swap(i, i + 1);
+    static int typeOrder(Account account) {
+        if (account instanceof CollegeChecking) {
+            return COLLEGE_CHECKING;
+        } else if (account instanceof Checking) {
+            return CHECKING;
+        } else if (account instanceof MoneyMarket) {
+            return MONEY_MARKET;
+        }
+        return SAVINGS;
+    }
 
-                sortAccountTypeProfile(i);
-            } else if (accountTypeCompare == 0) {
-                int accountProfileCompare = compareProfile(accounts[i], accounts[i + 1]);
+    /**
+     * Creates an account with a zero balance that can be used to look up the
+     * holder's account of a type, e.g. to deposit into it
+     *
+     * @param type   Type rank of the account
+     * @param holder Profile of the account holder
+     * @return Account of the given type and holder
+     */
+    static Account key(int type, Profile holder) {
+        return switch (type) {
+            case CHECKING -> new Checking(holder, 0.0);
+            case COLLEGE_CHECKING -> new CollegeChecking(holder, 0.0);
+            case SAVINGS -> new Savings(holder, 0.0);
+            default -> new MoneyMarket(holder, 0.0);
+        };
+    }
 
-                if (accountProfileCompare > 0) {
-                    swap(i, i + 1);
+    /**
+     * Returns the accounts in order of account type and profile.
+     * The sorted view is cached and only rebuilt after an account is opened
+     * or closed. A view is never changed once returned, so a report can keep
+     * writing it after other accounts are opened or closed.
+     *
+     * @return Array holding the sorted accounts
+     */
+    Account[] sortedAccounts() {
+        if (sortedView == null) {
+            long start = startTiming();
+            sortedView = sortAccounts();
+            stopTiming(DatabaseMetrics.Operation.SORT, start);
+        }
+        return sortedView;
+    }
 
-                    sortAccountTypeProfile(i);
-                }
+    /**
+     * Sorts accounts in order of account type and profile.
+     * Each account is sorted by a key made of its type rank and the
+     * precomputed sort key of its holder, see AccountSorter, so holders are
+     * only compared by name when their keys are equal.
+     *
+     * @return New array holding the sorted accounts
+     */
+    private Account[] sortAccounts() {
+        Account[] accounts = this.accounts;
+        int[] order = AccountSorter.sort(numAcct, new AccountSorter.Source() {
+            @Override
+            public long key(int item, int level) {
+                long key = accounts[item].holder.sortKey(level);
+                return level == 0 ? AccountSorter.firstKey(typeOrder(accounts[item]), key) : key;
             }
+
+            @Override
+            public String lname(int item) {
+                return accounts[item].holder.getLname();
+            }
+
+            @Override
+            public String fname(int item) {
+                return accounts[item].holder.getFname();
+            }
+
+            @Override
+            public int dob(int item) {
+                return accounts[item].holder.getDOB().pack();
+            }
+        });
+        Account[] view = new Account[numAcct];
+        for (int i = 0; i < numAcct; i++) {
+            view[i] = accounts[order[i]];
+        }
+        return view;
+    }
+
+    /**
+     * Report that writes its lines to an output sink
+     */
+    private interface Report {
+        void writeTo(Appendable output) throws IOException;
+    }
+
+    /**
+     * Collects a report into a String
+     *
+     * @param report Report to collect
+     * @return All lines of the report
+     */
+    private static String collect(Report report) {
+        StringBuilder output = new StringBuilder();
+        try {
+            report.writeTo(output);
+        } catch (IOException e) { // StringBuilder does not throw IOException
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Sorts and prints account array in order of account type and profile
+     */
+    public String printSorted() {
+        return collect(this::printSorted);
+    }
+
+    /**
+     * Writes accounts in order of account type and profile to an output sink,
+     * one line at a time, so large databases can be written to a file without
+     * building the whole report in memory.
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @throws IOException If writing to the sink fails
+     */
+    public void printSorted(Appendable output) throws IOException {
+        long start = startTiming();
+        try {
+            writeAccounts(sortedAccounts(), output);
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.REPORT, start);
         }
     }
 
@@ -309,36 +1200,183 @@ public class AccountDatabase {
      * Calculate and prints the fees/interests
      */
     public String printFeesAndInterests() {
-        sortAccounts();
-        StringBuilder output = new StringBuilder();
+        return collect(this::printFeesAndInterests);
+    }
 
-        for (int i = 0; i < numAcct; i++) {
-            output.append(accounts[i].toStringFeesInterest());
-            output.append("\n");
+    /**
+     * Writes accounts with their fees and interests to an output sink, one line at a time.
+     * Like printSorted, an account closed after the view was taken is left out.
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @throws IOException If writing to the sink fails
+     */
+    public void printFeesAndInterests(Appendable output) throws IOException {
+        long start = startTiming();
+        try {
+            StringBuilder line = new StringBuilder(LINE_CAPACITY);
+            for (Account account : sortedAccounts()) {
+                line.setLength(0);
+                account.appendFeesInterestTo(line);
+                if (!account.isClosed()) {
+                    output.append(line.append('\n'));
+                }
+            }
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.REPORT, start);
         }
+    }
 
-        return output.toString();
+    /**
+     * Applies the fees and interests to a single account.
+     * If account type is MoneyMarket, reset withdrawals to 0
+     *
+     * @param account Account to update
+     */
+    static void applyMonthEnd(Account account) {
+        account.monthlyInterest();
+        account.monthlyFee();
+        if (account instanceof MoneyMarket) {
+            ((MoneyMarket) account).setWithdrawal(0);
+        }
+    }
+
+    /**
+     * Applies the fees and interests to a single account, with compare-and-set
+     * if other threads may update its balance at the same time
+     *
+     * @param account Account to update
+     * @param atomic  True to update the balance with compare-and-set
+     */
+    static void applyMonthEnd(Account account, boolean atomic) {
+        if (atomic) {
+            account.applyMonthEndAtomic();
+        } else {
+            applyMonthEnd(account);
+        }
     }
 
     /**
      * Applies the fees and interests and update account balance
      * If account type is MoneyMarket, reset withdrawals to 0
+     * Large databases are updated in parallel on the common ForkJoinPool.
      */
     public String printUpdatesBalances() {
-        sortAccounts();
-        StringBuilder output = new StringBuilder();
+        return collect(this::printUpdatesBalances);
+    }
 
-        for (int i = 0; i < numAcct; i++) {
-            accounts[i].monthlyInterest();
-            accounts[i].monthlyFee();
-            if (accounts[i].getAccountTypeInitial().equals("MM")) {
-                MoneyMarket account = (MoneyMarket) accounts[i];
-                account.setWithdrawal(0);
+    /**
+     * Applies the fees and interests and update account balance, splitting the
+     * accounts across the threads of the given pool.
+     * The report is identical to updating the accounts one at a time.
+     *
+     * @param pool Pool that updates the accounts
+     * @return Report of the updated accounts in order of account type and profile
+     */
+    public String printUpdatesBalances(ForkJoinPool pool) {
+        return collect(output -> printUpdatesBalances(output, pool));
+    }
+
+    /**
+     * Applies the fees and interests and writes the updated accounts to an output sink.
+     * Unless other threads may update balances at the same time, the balances
+     * are updated as columns, see MonthEndColumns.
+     * Large databases are updated in parallel on the common ForkJoinPool.
+     * Every account is updated before the first line is written, so if
+     * writing to the sink fails, e.g. because a client disconnects, the whole
+     * month-end has still been applied, as its journal record says, and only
+     * the report is cut short.
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @throws IOException If writing to the sink fails, after the balances are updated
+     */
+    public void printUpdatesBalances(Appendable output) throws IOException {
+        long start = startTiming();
+        MonthEndEvent event = new MonthEndEvent();
+        event.begin();
+        boolean parallel = numAcct >= PARALLEL_THRESHOLD;
+        try {
+            Account[] view = updateBalances(parallel ? ForkJoinPool.commonPool() : null);
+            snapshotIfDue();
+            writeAccounts(view, output);
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.REPORT, start);
+            event.commit(numAcct, parallel);
+        }
+    }
+
+    /**
+     * Applies the fees and interests on the given pool and writes the updated
+     * accounts to an output sink.
+     * The report is identical to updating the accounts one at a time. Every
+     * account is updated before the first line is written, see
+     * printUpdatesBalances(Appendable).
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @param pool   Pool that updates the accounts
+     * @throws IOException If writing to the sink fails, after the balances are updated
+     */
+    public void printUpdatesBalances(Appendable output, ForkJoinPool pool) throws IOException {
+        long start = startTiming();
+        MonthEndEvent event = new MonthEndEvent();
+        event.begin();
+        try {
+            Account[] view = updateBalances(pool);
+            snapshotIfDue();
+            writeAccounts(view, output);
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.REPORT, start);
+            event.commit(numAcct, true);
+        }
+    }
+
+    /**
+     * Records a month-end in the journal and applies the fees and interests
+     * to every account once the record is durable.
+     * On the calling thread, one chunk of accounts after another is updated
+     * with one set of columns the size of a chunk, so the update does not
+     * allocate arrays the size of the database.
+     *
+     * @param pool Pool that updates the accounts, or null to update them on the calling thread
+     * @return Updated accounts in order of account type and profile
+     * @throws UncheckedIOException If the journal could not be written, in which case no balance is changed
+     */
+    Account[] updateBalances(ForkJoinPool pool) {
+        Account[] view = sortedAccounts();
+        boolean atomic = atomicBalances();
+        awaitJournal(journalMonthEnd());
+        if (pool != null) {
+            pool.invoke(new MonthEndTask(view, atomic, 0, MonthEndTask.chunkCount(view.length)));
+        } else if (atomic) {
+            for (Account account : view) {
+                applyMonthEnd(account, true);
+            }
+        } else {
+            MonthEndColumns columns = new MonthEndColumns(Math.min(view.length, MonthEndTask.CHUNK_SIZE));
+            for (int start = 0; start < view.length; start += MonthEndTask.CHUNK_SIZE) {
+                columns.apply(view, start, Math.min(start + MonthEndTask.CHUNK_SIZE, view.length));
             }
-            output.append(accounts[i].toString());
-            output.append("\n");
         }
+        return view;
+    }
 
-        return output.toString();
+    /**
+     * Writes accounts to an output sink, one line at a time.
+     * An account closed in lock-free mode after the view was taken is left
+     * out; the check comes after the line is built, so a line is never
+     * written from a closed balance.
+     *
+     * @param view   Accounts to write
+     * @param output Sink the lines are written to
+     * @throws IOException If writing to the sink fails
+     */
+    private static void writeAccounts(Account[] view, Appendable output) throws IOException {
+        StringBuilder line = new StringBuilder(LINE_CAPACITY);
+        for (Account account : view) {
+            line.setLength(0);
+            account.appendTo(line);
+            if (!account.isClosed()) {
+                output.append(line.append('\n'));
+            }
+        }
     }
 }
@@ -0,0 +1,60 @@
+package bankingsoftware;
+
+import java.nio.file.Path;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * AccountLoadEvent class that records a load of an account file in Java
+ * Flight Recorder, with the number of rows parsed, loaded, rejected and
+ * skipped as duplicates.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@Name("bankingsoftware.AccountLoad")
+@Label("Account Load")
+@Category({"Banking", "Account Loader"})
+@Description("Accounts read from a file and opened in an account database")
+class AccountLoadEvent extends jdk.jfr.Event {
+    @Label("Source")
+    @Description("File the accounts were read from, or empty for a reader")
+    String source;
+
+    @Label("Parallel")
+    @Description("True if the file was parsed in chunks on a ForkJoinPool")
+    boolean parallel;
+
+    @Label("Rows Parsed")
+    long rowsParsed;
+
+    @Label("Rows Loaded")
+    long rowsLoaded;
+
+    @Label("Rows Rejected")
+    long rowsRejected;
+
+    @Label("Duplicates")
+    long duplicates;
+
+    /**
+     * Commits the event, if it is recorded, after setting its fields
+     *
+     * @param source   File the accounts were read from, or null for a reader
+     * @param parallel True if the file was parsed on a pool
+     * @param report   Report of the load
+     */
+    void commit(Path source, boolean parallel, LoadReport report) {
+        end();
+        if (shouldCommit()) {
+            this.source = source == null ? "" : source.toString();
+            this.parallel = parallel;
+            rowsLoaded = report.getLoaded();
+            rowsRejected = report.getRejected();
+            duplicates = report.getDuplicates();
+            rowsParsed = rowsLoaded + rowsRejected + duplicates;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package bankingsoftware;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * AccountLoader class that reads accounts from a comma separated file and
+ * opens them in an AccountDatabase.
+ * Each line holds one account in one of these formats:
+ * C,fname,lname,dob,balance
+ * CC,fname,lname,dob,balance,campusCode
+ * S,fname,lname,dob,balance,loyalCode
+ * MM,fname,lname,dob,balance
+ * Dates and balances are parsed in place, and valid accounts are opened in
+ * batches. Rows that are invalid or already in the database are counted in a
+ * LoadReport instead of stopping the load.
+ * Large files can be loaded with loadParallel, which memory-maps the file and
+ * parses newline aligned chunks of it on several threads.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class AccountLoader {
+    static final int BATCH_SIZE = 1024;
+    private static final int MAX_FIELDS = 6;
+    private static final int NOT_AN_ACCOUNT_TYPE = -1;
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 1L << 28;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_AGE = 16;
+    private static final int MAX_COLLEGE_AGE = 24;
+    private static final int YEAR_IN_PACKED_DATE = 10000;
+
+    private final AccountDatabase database;
+    private final int[] fieldStart = new int[MAX_FIELDS + 1];
+    private final int[] fieldEnd = new int[MAX_FIELDS + 1];
+
+    /**
+     * Creates a loader that opens accounts in the given database
+     *
+     * @param database Database to open the loaded accounts in
+     */
+    public AccountLoader(AccountDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Loads all accounts from a file
+     *
+     * @param file File to load
+     * @return Report of loaded, rejected and duplicate rows
+     * @throws IOException If the file cannot be read
+     */
+    public LoadReport load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader, file);
+        }
+    }
+
+    /**
+     * Loads all accounts from a reader, one account per line
+     *
+     * @param reader Reader to load the accounts from
+     * @return Report of loaded, rejected and duplicate rows
+     * @throws IOException If the reader cannot be read
+     */
+    public LoadReport load(BufferedReader reader) throws IOException {
+        return load(reader, null);
+    }
+
+    /**
+     * Loads all accounts from a reader and records the load in Java Flight Recorder
+     *
+     * @param reader Reader to load the accounts from
+     * @param source File the reader reads, or null if it is not a file
+     * @return Report of loaded, rejected and duplicate rows
+     * @throws IOException If the reader cannot be read
+     */
+    private LoadReport load(BufferedReader reader, Path source) throws IOException {
+        AccountLoadEvent event = new AccountLoadEvent();
+        event.begin();
+        LoadReport report = new LoadReport();
+        Date today = new Date();
+        Account[] batch = new Account[BATCH_SIZE];
+        long[] batchLines = new long[BATCH_SIZE];
+        int batchSize = 0;
+        long lineNumber = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Account account = parse(line, lineNumber, today, report);
+            if (account != null) {
+                batch[batchSize] = account;
+                batchLines[batchSize++] = lineNumber;
+                if (batchSize == BATCH_SIZE) {
+                    insert(batch, batchLines, batchSize, report);
+                    batchSize = 0;
+                }
+            }
+        }
+        insert(batch, batchLines, batchSize, report);
+        event.commit(source, false, report);
+        return report;
+    }
+
+    /**
+     * Loads all accounts from a file on the common ForkJoinPool, see loadParallel(Path, ForkJoinPool)
+     *
+     * @param file File to load
+     * @return Report of loaded, rejected and duplicate rows
+     * @throws IOException If the file cannot be read
+     */
+    public LoadReport loadParallel(Path file) throws IOException {
+        return loadParallel(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads all accounts from a file by memory-mapping it and parsing chunks of it in parallel.
+     * The file is split into chunks that end at a newline, and each chunk is parsed
+     * on the pool into its own list of accounts. Chunks are then opened in the
+     * database in file order on the calling thread, with the same duplicate rules
+     * as load(), so the result is the same as loading the file line by line.
+     *
+     * @param file File to load
+     * @param pool Pool that parses the chunks
+     * @return Report of loaded, rejected and duplicate rows
+     * @throws IOException If the file cannot be read
+     */
+    public LoadReport loadParallel(Path file, ForkJoinPool pool) throws IOException {
+        AccountLoadEvent event = new AccountLoadEvent();
+        event.begin();
+        Date today = new Date();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, pool.getParallelism());
+            List<ForkJoinTask<ParsedChunk>> tasks = new ArrayList<>(bounds.length);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(pool.submit(() -> parseChunk(channel, start, end, today)));
+            }
+
+            LoadReport report = new LoadReport();
+            long linesBefore = 0;
+            try {
+                for (ForkJoinTask<ParsedChunk> task : tasks) {
+                    ParsedChunk chunk = task.get();
+                    for (int i = 0; i < chunk.size; i++) {
+                        chunk.lines[i] += linesBefore;
+                    }
+                    report.add(chunk.report, linesBefore);
+                    insert(chunk.accounts, chunk.lines, chunk.size, report);
+                    linesBefore += chunk.lineCount;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Load of " + file + " was interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IOException("Could not parse " + file, e.getCause());
+            } finally {
+                for (ForkJoinTask<ParsedChunk> task : tasks) {
+                    task.cancel(false);
+                }
+            }
+            event.commit(file, true, report);
+            return report;
+        }
+    }
+
+    /**
+     * Accounts parsed from one chunk of a file, in file order
+     */
+    private static class ParsedChunk {
+        private final LoadReport report = new LoadReport();
+        private Account[] accounts = new Account[BATCH_SIZE];
+        private long[] lines = new long[BATCH_SIZE];
+        private int size;
+        private long lineCount;
+
+        /**
+         * Adds a parsed account and the line number it was parsed from
+         */
+        private void add(Account account, long lineNumber) {
+            if (size == accounts.length) {
+                accounts = Arrays.copyOf(accounts, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            accounts[size] = account;
+            lines[size++] = lineNumber;
+        }
+    }
+
+    /**
+     * Splits a file into chunks of roughly equal size that each end after a newline
+     *
+     * @param channel     Channel of the file
+     * @param parallelism Number of threads that will parse the chunks
+     * @return Offsets where the chunks start, followed by the size of the file
+     * @throws IOException If the file cannot be read
+     */
+    private static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long target = Math.min(MAX_CHUNK_BYTES,
+                Math.max(MIN_CHUNK_BYTES, size / ((long) CHUNKS_PER_THREAD * parallelism)));
+        long[] bounds = new long[(int) (size / target) + 2];
+        int count = 1;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+
+        long start = 0;
+        while (start < size) {
+            long end = start + target >= size ? size : nextLineStart(channel, start + target, probe);
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = end;
+            start = end;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Returns the offset just after the first newline at or after a position,
+     * or the size of the file if there is no newline after it
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Memory-maps one chunk of a file and parses its lines into accounts.
+     * Uses its own loader so that chunks can be parsed at the same time.
+     *
+     * @param channel Channel of the file
+     * @param start   Offset of the first byte of the chunk
+     * @param end     Offset after the last byte of the chunk
+     * @param today   Today's date, to check dates of birth against
+     * @return The parsed accounts, with line numbers counted from the start of the chunk
+     */
+    private ParsedChunk parseChunk(FileChannel channel, long start, long end, Date today) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AccountLoader parser = new AccountLoader(database);
+        ParsedChunk chunk = new ParsedChunk();
+        byte[] lineBytes = new byte[256];
+        int size = buffer.limit();
+        int lineStart = 0;
+
+        while (lineStart < size) {
+            int lineEnd = lineStart;
+            while (lineEnd < size && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            chunk.lineCount++;
+
+            int length = lineEnd - lineStart;
+            if (length > lineBytes.length) {
+                lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+            }
+            buffer.get(lineStart, lineBytes, 0, length);
+            String line = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+            if (!line.isBlank()) {
+                Account account = parser.parse(line, chunk.lineCount, today, chunk.report);
+                if (account != null) {
+                    chunk.add(account, chunk.lineCount);
+                }
+            }
+            lineStart = next;
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses one line into an account.
+     * Returns null and counts the line as rejected if it has missing or invalid data.
+     *
+     * @param line       Line to parse
+     * @param lineNumber Line number of the line in the file
+     * @param today      Today's date, to check the date of birth against
+     * @param report     Report that rejected lines are counted in
+     * @return The parsed account, or null if the line is rejected
+     */
+    Account parse(String line, long lineNumber, Date today, LoadReport report) {
+        int fields = split(line);
+        int type = typeOf(line, fieldStart[0], fieldEnd[0]);
+        if (type == NOT_AN_ACCOUNT_TYPE) {
+            report.addRejected(lineNumber, "Invalid account type.");
+            return null;
+        }
+
+        int expectedFields = (type == AccountDatabase.COLLEGE_CHECKING || type == AccountDatabase.SAVINGS) ? 6 : 5;
+        if (fields < expectedFields || fieldStart[1] == fieldEnd[1] || fieldStart[2] == fieldEnd[2]) {
+            report.addRejected(lineNumber, "Missing data for loading an account.");
+            return null;
+        } else if (fields > expectedFields) {
+            report.addRejected(lineNumber, "Too many fields for loading an account.");
+            return null;
+        }
+
+        try {
+            Date dob = Date.parse(line, fieldStart[3], fieldEnd[3]);
+            checkDOB(dob, type == AccountDatabase.COLLEGE_CHECKING, today);
+            long balance;
+            try {
+                balance = Money.parseCents(line, fieldStart[4], fieldEnd[4]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a valid amount.");
+            }
+
+            Profile profile = new Profile(line.substring(fieldStart[1], fieldEnd[1]),
+                    line.substring(fieldStart[2], fieldEnd[2]), dob);
+            Account account = switch (type) {
+                case AccountDatabase.CHECKING -> new Checking(profile, 0.0);
+                case AccountDatabase.COLLEGE_CHECKING -> new CollegeChecking(profile, 0.0, parseCampus(line));
+                case AccountDatabase.SAVINGS -> new Savings(profile, 0.0, parseLoyaltyStatus(line));
+                default -> new MoneyMarket(profile, 0.0, balance >= MoneyMarket.LOYAL_BALANCE, 0);
+            };
+            account.balance = balance;
+            return account;
+        } catch (IllegalArgumentException e) {
+            report.addRejected(lineNumber, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Opens a parsed account unless it is already in the database.
+     * A holder can only have one of Checking and College Checking.
+     *
+     * @param account Account to open
+     * @return True if the account was opened, false if it is a duplicate
+     */
+    boolean open(Account account) {
+        return database.openUnlessHeld(account, account instanceof Checking ? Checking.class : null);
+    }
+
+    /**
+     * Opens a batch of parsed accounts in the database.
+     * Accounts already in the database, or a second Checking or College Checking
+     * account for the same holder, are counted as duplicates.
+     * If the database has a journal, the whole batch shares one wait for it,
+     * and the accounts are only opened once their records are durable, see
+     * AccountDatabase.openAll.
+     *
+     * @param batch      Parsed accounts, cleared as they are opened
+     * @param batchLines Line number of each parsed account
+     * @param batchSize  Number of accounts in the batch
+     * @param report     Report that loaded and duplicate accounts are counted in
+     * @throws UncheckedIOException If the journal could not be written, in which case no account of the batch is opened
+     */
+    void insert(Account[] batch, long[] batchLines, int batchSize, LoadReport report) {
+        database.ensureCapacity(database.getNumAcct() + batchSize);
+        boolean[] opened = database.openAll(batch, batchSize, Checking.class);
+        for (int i = 0; i < batchSize; i++) {
+            Account account = batch[i];
+            batch[i] = null;
+            if (!opened[i]) {
+                Profile profile = account.getProfile();
+                report.addDuplicate(batchLines[i], String.format("%s %s %s(%s) is already in the database.",
+                        profile.getFname(), profile.getLname(), profile.getDOB().toString(),
+                        account.getAccountTypeInitial()));
+            } else {
+                report.addLoaded();
+            }
+        }
+    }
+
+    /**
+     * Finds the start and end of each comma separated field in a line
+     *
+     * @param line Line to split
+     * @return Number of fields in the line, counting at most MAX_FIELDS + 1
+     */
+    private int split(String line) {
+        int fields = 0;
+        int start = 0;
+        while (fields <= MAX_FIELDS) {
+            int comma = line.indexOf(',', start);
+            fieldStart[fields] = start;
+            fieldEnd[fields] = comma < 0 ? line.length() : comma;
+            fields++;
+            if (comma < 0) {
+                break;
+            }
+            start = comma + 1;
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the account type of a type code such as "CC"
+     *
+     * @param line  Line holding the type code
+     * @param start Index of the first character of the type code
+     * @param end   Index after the last character of the type code
+     * @return Type rank used by AccountDatabase, or NOT_AN_ACCOUNT_TYPE
+     */
+    static int typeOf(CharSequence line, int start, int end) {
+        if (end - start == 1) {
+            if (line.charAt(start) == 'C') {
+                return AccountDatabase.CHECKING;
+            } else if (line.charAt(start) == 'S') {
+                return AccountDatabase.SAVINGS;
+            }
+        } else if (end - start == 2) {
+            if (line.charAt(start) == 'C' && line.charAt(start + 1) == 'C') {
+                return AccountDatabase.COLLEGE_CHECKING;
+            } else if (line.charAt(start) == 'M' && line.charAt(start + 1) == 'M') {
+                return AccountDatabase.MONEY_MARKET;
+            }
+        }
+        return NOT_AN_ACCOUNT_TYPE;
+    }
+
+    /**
+     * Parses the campus code field of a College Checking line
+     */
+    private Campus parseCampus(String line) {
+        int start = fieldStart[5];
+        if (fieldEnd[5] - start == 1) {
+            switch (line.charAt(start)) {
+                case '0':
+                    return Campus.NEW_BRUNSWICK;
+                case '1':
+                    return Campus.NEWARK;
+                case '2':
+                    return Campus.CAMDEN;
+            }
+        }
+        throw new IllegalArgumentException("Invalid campus code.");
+    }
+
+    /**
+     * Parses the loyal customer status code field of a Savings line
+     */
+    private boolean parseLoyaltyStatus(String line) {
+        int start = fieldStart[5];
+        if (fieldEnd[5] - start == 1) {
+            switch (line.charAt(start)) {
+                case '0':
+                    return false;
+                case '1':
+                    return true;
+            }
+        }
+        throw new IllegalArgumentException("Invalid loyal customer status code.");
+    }
+
+    /**
+     * Checks that DOB is a valid past date and that profile is at least 16 years old.
+     * If account type is College Checking, also checks that profile is under 24 years old.
+     *
+     * @param dob             DOB of profile
+     * @param collegeChecking True if the account is a College Checking account
+     * @throws IllegalArgumentException If DOB or age is invalid, with the reason as message
+     */
+    public static void checkDOB(Date dob, boolean collegeChecking) {
+        checkDOB(dob, collegeChecking, new Date());
+    }
+
+    /**
+     * Checks that DOB is a valid past date and that profile is at least 16 years old.
+     * If account type is College Checking, also checks that profile is under 24 years old.
+     *
+     * @param dob             DOB of profile
+     * @param collegeChecking True if the account is a College Checking account
+     * @param today           Today's date
+     * @throws IllegalArgumentException If DOB or age is invalid, with the reason as message
+     */
+    public static void checkDOB(Date dob, boolean collegeChecking, Date today) {
+        if (!dob.isValid()) {
+            throw new IllegalArgumentException("DOB invalid: is not a valid calendar date.");
+        }
+
+        if (dob.compareTo(today) >= 0) {
+            throw new IllegalArgumentException("DOB invalid: cannot be today or a future date.");
+        }
+
+        // Dates pack as yyyymmdd, so adding years * 10000 to a DOB gives that birthday
+        if (today.pack() < dob.pack() + MIN_AGE * YEAR_IN_PACKED_DATE) {
+            throw new IllegalArgumentException("DOB invalid: user under 16.");
+        }
+
+        if (collegeChecking && today.pack() > dob.pack() + MAX_COLLEGE_AGE * YEAR_IN_PACKED_DATE) {
+            throw new IllegalArgumentException("DOB invalid: user over 24.");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package bankingsoftware;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * AccountSnapshot class that holds the accounts of a database at one point
+ * in time and writes them to a compact binary file.
+ * <p>
+ * Taking a snapshot only copies the account references and the fields that
+ * transactions change (balance, loyalty and withdrawals), so transactions are
+ * held up for as long as it takes to copy a few arrays. Names, dates and types
+ * do not change, so the file is written later on another thread.
+ * <p>
+ * The file holds a header, a pool of the distinct names, one fixed size
+ * record per account, and a CRC32C checksum of everything before it. A
+ * record is the ids of the first and last name in the pool, the date of
+ * birth packed as yyyymmdd, the balance in cents, the account type, the
+ * campus code or loyalty, and the number of withdrawals.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class AccountSnapshot {
+    private static final int MAGIC = 0x42414E4B; // "BANK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+    private static final int RECORD_BYTES = 4 + 4 + 4 + 8 + 1 + 1 + 4;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final long segment;
+    private final Account[] accounts;
+    private final long[] balances;
+    private final byte[] flags;
+    private final int[] withdrawals;
+
+    /**
+     * Copies the accounts and their changing fields.
+     * The caller must make sure no transaction runs while the copy is taken.
+     *
+     * @param accounts Accounts of the database
+     * @param numAcct  Number of accounts
+     * @param segment  Journal segment started together with the snapshot
+     */
+    AccountSnapshot(Account[] accounts, int numAcct, long segment) {
+        this.segment = segment;
+        this.accounts = new Account[numAcct];
+        this.balances = new long[numAcct];
+        this.flags = new byte[numAcct];
+        this.withdrawals = new int[numAcct];
+        for (int i = 0; i < numAcct; i++) {
+            Account account = accounts[i];
+            this.accounts[i] = account;
+            balances[i] = account.balance;
+            flags[i] = (byte) TransactionJournal.flagOf(account);
+            withdrawals[i] = TransactionJournal.withdrawalsOf(account);
+        }
+    }
+
+    /**
+     * Getter method to get the journal segment started together with the snapshot
+     *
+     * @return Number of the segment whose records come after the snapshot
+     */
+    long getSegment() {
+        return segment;
+    }
+
+    /**
+     * Writes the snapshot to a file and forces it to disk
+     *
+     * @param file File to write, replaced if it exists
+     * @throws IOException If the file cannot be written
+     */
+    void write(Path file) throws IOException {
+        HashMap<String, Integer> ids = new HashMap<>();
+        List<byte[]> names = new ArrayList<>();
+        int[] nameIds = new int[2 * accounts.length];
+        for (int i = 0; i < accounts.length; i++) {
+            nameIds[2 * i] = intern(accounts[i].holder.getFname(), ids, names);
+            nameIds[2 * i + 1] = intern(accounts[i].holder.getLname(), ids, names);
+        }
+
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(segment).putInt(accounts.length).putInt(names.size());
+            for (byte[] name : names) {
+                if (buffer.remaining() < 2 + name.length) {
+                    drain(buffer, channel, crc);
+                }
+                buffer.putShort((short) name.length).put(name);
+            }
+            for (int i = 0; i < accounts.length; i++) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    drain(buffer, channel, crc);
+                }
+                buffer.putInt(nameIds[2 * i]).putInt(nameIds[2 * i + 1])
+                        .putInt(accounts[i].holder.getDOB().pack())
+                        .putLong(balances[i])
+                        .put((byte) AccountDatabase.typeOrder(accounts[i]))
+                        .put(flags[i])
+                        .putInt(withdrawals[i]);
+            }
+            drain(buffer, channel, crc);
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Returns the id of a name in the name pool, adding the name if it is new
+     */
+    private static int intern(String name, HashMap<String, Integer> ids, List<byte[]> names) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * Adds the buffered bytes to the checksum, writes them and clears the buffer
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Loads the accounts of a snapshot file into a database.
+     * The file is memory-mapped and its checksum is checked before any account is opened.
+     *
+     * @param file     Snapshot file
+     * @param database Database to open the accounts in, normally empty
+     * @return Journal segment started together with the snapshot
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    static long load(Path file, AccountDatabase database) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file.getFileName() + " is damaged.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - Integer.BYTES;
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(0, end));
+            if (buffer.getInt(end) != (int) crc.getValue() || buffer.getInt() != MAGIC
+                    || buffer.getInt() != VERSION) {
+                throw new IOException("Snapshot " + file.getFileName() + " is damaged.");
+            }
+
+            long segment = buffer.getLong();
+            int numAcct = buffer.getInt();
+            String[] names = new String[buffer.getInt()];
+            byte[] bytes = new byte[Short.MAX_VALUE * 2 + 1];
+            for (int i = 0; i < names.length; i++) {
+                int length = buffer.getShort() & 0xFFFF;
+                buffer.get(bytes, 0, length);
+                names[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            database.ensureCapacity(database.getNumAcct() + numAcct);
+            for (int i = 0; i < numAcct; i++) {
+                Profile holder = new Profile(names[buffer.getInt()], names[buffer.getInt()],
+                        Date.unpack(buffer.getInt()));
+                long balance = buffer.getLong();
+                int type = buffer.get();
+                int flag = buffer.get();
+                database.open(TransactionJournal.restore(type, holder, balance, flag, buffer.getInt()));
+            }
+            return segment;
+        }
+    }
+}
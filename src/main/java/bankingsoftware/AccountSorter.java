@@ -0,0 +1,419 @@
+package bankingsoftware;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * AccountSorter class that sorts accounts by account type, last name, first
+ * name and date of birth with primitive sort keys instead of a comparator.
+ * <p>
+ * A holder is written as a stream of codes: the characters of the last name,
+ * an end code, the characters of the first name, an end code, then the date
+ * of birth as six digits in base 67. Digits and letters have a code each, in
+ * the order String.compareTo gives them, and the end code sorts before every
+ * character, so the streams of two holders compare like Profile.compareTo.
+ * Other characters share a code with their neighbours, and the stream is cut
+ * after such a code, because the codes that follow it would no longer be in
+ * order.
+ * <p>
+ * A sort key holds ten codes of the stream as a number in base 67, and the
+ * first key of an account also holds its type rank above them, so most
+ * accounts are ordered by the first key alone. The keys are sorted by an MSD
+ * radix sort on their bytes. Accounts whose keys are equal are sorted by the
+ * next ten codes of their streams, and only accounts whose streams were cut
+ * are merge sorted with String.compareTo. The keys of the second level are
+ * computed for all accounts at once, in account order, the first time they
+ * are needed, because reading names in sorted order would miss the cache for
+ * nearly every account.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class AccountSorter {
+    static final int CODES_PER_KEY = 10;
+    private static final int RADIX = 67;
+    private static final long TYPE_WEIGHT = pow(RADIX, CODES_PER_KEY); // 4 types * 67^10 keeps keys below 2^63
+    private static final int DOB_DIGITS = 6; // 67^6 is above any packed date
+    private static final int END = 0;
+    private static final int CUT = 1 << 8; // added to the code of a character whose code is shared
+
+    private static final int BYTE_BITS = 8;
+    private static final int BUCKETS = 1 << BYTE_BITS;
+    private static final int TOP_SHIFT = Long.SIZE - BYTE_BITS;
+    private static final int SMALL_RANGE = 48; // ranges this small are insertion sorted
+
+    private static final int[] CODES = codes();
+
+    /**
+     * Holders of the items to sort, read by item number
+     */
+    interface Source {
+        /**
+         * Returns a sort key of an item, see AccountSorter.key
+         *
+         * @param item  Item number
+         * @param level Level of the key, with the type rank at level 0
+         * @return Sort key
+         */
+        long key(int item, int level);
+
+        /**
+         * Returns the last name of the holder of an item
+         *
+         * @param item Item number
+         * @return Last name
+         */
+        String lname(int item);
+
+        /**
+         * Returns the first name of the holder of an item
+         *
+         * @param item Item number
+         * @return First name
+         */
+        String fname(int item);
+
+        /**
+         * Returns the date of birth of the holder of an item
+         *
+         * @param item Item number
+         * @return Date of birth packed as yyyymmdd
+         */
+        int dob(int item);
+    }
+
+    private final Source source;
+    private final long[] keys;
+    private final int[] order;
+    private final long[] spareKeys;
+    private final int[] spareOrder;
+    private long[] secondKeys; // keys at level 1 by item number, read when keys at level 0 are equal
+    private final ArrayList<int[]> bucketStarts = new ArrayList<>();
+
+    /**
+     * Creates a sorter of a number of items
+     */
+    private AccountSorter(int count, Source source) {
+        this.source = source;
+        keys = new long[count];
+        order = new int[count];
+        spareKeys = new long[count];
+        spareOrder = new int[count];
+    }
+
+    /**
+     * Sorts items by the type rank and holder in their sort keys
+     *
+     * @param count  Number of items, numbered from 0
+     * @param source Holders of the items
+     * @return Item numbers in sorted order
+     */
+    static int[] sort(int count, Source source) {
+        AccountSorter sorter = new AccountSorter(count, source);
+        for (int item = 0; item < count; item++) {
+            sorter.order[item] = item;
+            sorter.keys[item] = source.key(item, 0);
+        }
+        sorter.sort(0, count, TOP_SHIFT, 0, 0);
+        return sorter.order;
+    }
+
+    /**
+     * Returns a sort key of a holder: ten codes of the holder's stream as a
+     * number in base 67, and at level 0 the type rank above them
+     *
+     * @param type  Type rank of the account, ignored above level 0
+     * @param lname Last name of the holder
+     * @param fname First name of the holder
+     * @param dob   Date of birth packed as yyyymmdd
+     * @param level 0 for the first ten codes, 1 for the next ten and so on
+     * @return Sort key, at least 0
+     */
+    static long key(int type, String lname, String fname, int dob, int level) {
+        int first = level * CODES_PER_KEY;
+        long key = level == 0 ? type : 0;
+        boolean cut = false;
+        for (int position = 0; position < first + CODES_PER_KEY; position++) {
+            int code = cut ? END : code(lname, fname, dob, position);
+            if (code >= CUT) {
+                code -= CUT;
+                cut = true;
+            }
+            if (position >= first) {
+                key = key * RADIX + code;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns the first sort key of an account from the key of its holder at
+     * level 0 for type rank 0
+     *
+     * @param type       Type rank of the account
+     * @param profileKey Key of the holder at level 0 for type rank 0
+     * @return Sort key at level 0
+     */
+    static long firstKey(int type, long profileKey) {
+        return type * TYPE_WEIGHT + profileKey;
+    }
+
+    /**
+     * Returns the code at a position of a holder's stream, plus CUT for a
+     * character whose code is shared
+     */
+    private static int code(String lname, String fname, int dob, int position) {
+        int lnameLength = lname.length();
+        if (position < lnameLength) {
+            return charCode(lname.charAt(position));
+        } else if (position == lnameLength) {
+            return END;
+        }
+        position -= lnameLength + 1;
+        int fnameLength = fname.length();
+        if (position < fnameLength) {
+            return charCode(fname.charAt(position));
+        } else if (position == fnameLength) {
+            return END;
+        }
+        position -= fnameLength + 1;
+        if (position < DOB_DIGITS) {
+            return (int) (dob / pow(RADIX, DOB_DIGITS - 1 - position) % RADIX);
+        }
+        return END;
+    }
+
+    /**
+     * Returns the code of a character, plus CUT if the code is shared
+     */
+    private static int charCode(char c) {
+        int code = CODES[Math.min(c, CODES.length - 1)];
+        return isShared(c) ? code + CUT : code;
+    }
+
+    /**
+     * Returns true if a character shares its code with other characters,
+     * i.e. it is not a digit or an ASCII letter
+     */
+    private static boolean isShared(char c) {
+        return !(c >= '0' && c <= '9' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z');
+    }
+
+    /**
+     * Builds the table of codes of the characters below 128. END is 0, every
+     * digit and letter has its own code, and each run of other characters
+     * between them shares one code. Characters from 127 up share the last code.
+     */
+    private static int[] codes() {
+        int[] codes = new int[128];
+        int code = END;
+        for (char c = 0; c < codes.length; c++) {
+            if (c == 0 || !isShared(c) || !isShared((char) (c - 1))) {
+                code++;
+            }
+            codes[c] = code;
+        }
+        return codes;
+    }
+
+    /**
+     * Returns base raised to a small power
+     */
+    private static long pow(int base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the stream of an item ends within the keys up to a
+     * level, so the keys of higher levels are all 0
+     */
+    private boolean ends(int item, int level) {
+        String lname = source.lname(item);
+        String fname = source.fname(item);
+        int length = lname.length() + fname.length() + 2 + DOB_DIGITS;
+        for (int i = 0; i < lname.length(); i++) {
+            if (isShared(lname.charAt(i))) {
+                length = Math.min(length, i + 1);
+                break;
+            }
+        }
+        for (int i = 0; i < fname.length(); i++) {
+            if (isShared(fname.charAt(i))) {
+                length = Math.min(length, lname.length() + 1 + i + 1);
+                break;
+            }
+        }
+        return length <= (level + 1) * CODES_PER_KEY;
+    }
+
+    /**
+     * Sorts a range of items whose keys agree on the bytes above a shift:
+     * by the byte at the shift, then by the bytes below it, then the items
+     * with equal keys by the keys of the next level
+     *
+     * @param from  First item of the range
+     * @param to    Item after the last one of the range
+     * @param shift Shift of the byte to sort by, below 0 if the keys are equal
+     * @param level Level of the keys in the range
+     * @param depth Number of ranges this range is nested in, which picks its bucket counts
+     */
+    private void sort(int from, int to, int shift, int level, int depth) {
+        while (to - from > SMALL_RANGE && shift >= 0) {
+            int[] starts = bucketStarts(depth);
+            Arrays.fill(starts, 0);
+            for (int i = from; i < to; i++) {
+                starts[bucket(keys[i], shift) + 1]++;
+            }
+            if (starts[bucket(keys[from], shift) + 1] == to - from) {
+                shift -= BYTE_BITS; // every key has the same byte here
+                continue;
+            }
+            starts[0] = from;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                starts[bucket + 1] += starts[bucket];
+            }
+            int[] next = bucketStarts(depth + 1); // only used until the buckets are sorted
+            System.arraycopy(starts, 0, next, 0, BUCKETS);
+            for (int i = from; i < to; i++) {
+                int slot = next[bucket(keys[i], shift)]++;
+                spareKeys[slot] = keys[i];
+                spareOrder[slot] = order[i];
+            }
+            System.arraycopy(spareKeys, from, keys, from, to - from);
+            System.arraycopy(spareOrder, from, order, from, to - from);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (starts[bucket + 1] - starts[bucket] > 1) {
+                    sort(starts[bucket], starts[bucket + 1], shift - BYTE_BITS, level, depth + 1);
+                }
+            }
+            return;
+        }
+        if (shift < 0) {
+            sortEqualKeys(from, to, level, depth);
+            return;
+        }
+        insertionSort(from, to);
+        int run = from;
+        while (run < to) {
+            int runEnd = run + 1;
+            while (runEnd < to && keys[runEnd] == keys[run]) {
+                runEnd++;
+            }
+            if (runEnd - run > 1) {
+                sortEqualKeys(run, runEnd, level, depth);
+            }
+            run = runEnd;
+        }
+    }
+
+    /**
+     * Returns the byte of a key at a shift
+     */
+    private static int bucket(long key, int shift) {
+        return (int) (key >>> shift) & (BUCKETS - 1);
+    }
+
+    /**
+     * Sorts a range of items whose keys at a level are all equal: by the keys
+     * of the next level, or by their names if their streams end at this level
+     */
+    private void sortEqualKeys(int from, int to, int level, int depth) {
+        if (ends(order[from], level)) {
+            compareSort(from, to);
+            return;
+        }
+        if (level == 0 && secondKeys == null) {
+            secondKeys = new long[order.length];
+            for (int item = 0; item < order.length; item++) { // in item order, which is usually memory order
+                secondKeys[item] = source.key(item, 1);
+            }
+        }
+        for (int i = from; i < to; i++) {
+            keys[i] = level == 0 ? secondKeys[order[i]] : source.key(order[i], level + 1);
+        }
+        sort(from, to, TOP_SHIFT, level + 1, depth);
+    }
+
+    /**
+     * Insertion sorts a small range by key
+     */
+    private void insertionSort(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int item = order[i];
+            int j = i - 1;
+            while (j >= from && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            order[j + 1] = item;
+        }
+    }
+
+    /**
+     * Merge sorts a range of items by name and date of birth, for items whose
+     * streams were cut. Every holder in the range can have been cut at the
+     * same character, e.g. when all last names start with an accent, so the
+     * range can be as large as the whole sort.
+     */
+    private void compareSort(int from, int to) {
+        if (to - from <= SMALL_RANGE) {
+            for (int i = from + 1; i < to; i++) {
+                int item = order[i];
+                int j = i - 1;
+                while (j >= from && compare(order[j], item) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = item;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        compareSort(from, middle);
+        compareSort(middle, to);
+        if (compare(order[middle - 1], order[middle]) <= 0) {
+            return; // the halves are already in order
+        }
+        System.arraycopy(order, from, spareOrder, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && compare(spareOrder[left], spareOrder[right]) <= 0) {
+                order[i] = spareOrder[left++];
+            } else {
+                order[i] = spareOrder[right++];
+            }
+        }
+    }
+
+    /**
+     * Compares the holders of two items like Profile.compareTo
+     */
+    private int compare(int itemOne, int itemTwo) {
+        int comparison = source.lname(itemOne).compareTo(source.lname(itemTwo));
+        if (comparison == 0) {
+            comparison = source.fname(itemOne).compareTo(source.fname(itemTwo));
+        }
+        if (comparison == 0) {
+            comparison = Integer.compare(source.dob(itemOne), source.dob(itemTwo));
+        }
+        return comparison;
+    }
+
+    /**
+     * Returns the bucket counts used at a depth, so that nested ranges do not
+     * share counts
+     */
+    private int[] bucketStarts(int depth) {
+        while (bucketStarts.size() <= depth) {
+            bucketStarts.add(new int[BUCKETS + 1]);
+        }
+        return bucketStarts.get(depth);
+    }
+}
@@ -7,8 +7,9 @@ package bankingsoftware;
  * @author Frances Cortuna
  */
 public class Checking extends Account {
-    private final static double INTEREST_RATE = 0.01;
-    private final static double MONTHLY_FEE = 12.0;
+    final static long INTEREST_RATE = 100; // 1% in basis points
+    final static long MONTHLY_FEE = 1200; // $12.00 in cents
+    final static long FEE_WAIVED_BALANCE = 100000; // $1000.00 in cents
 
     /**
      * Parameterized constructor that initializes a Checking object with holder and
@@ -22,24 +23,38 @@ public class Checking extends Account {
     }
 
     /**
-     * Applies monthly interest to account balance
+     * Computes monthly interest on a balance
      * 
-     * @return New balance with accrued monthly interest
+     * @param balance Balance in cents
+     * @return Monthly interest in cents
      */
-    public double monthlyInterest() {
-        return balance += getInterest();
+    @Override
+    long interestCents(long balance) {
+        return Money.monthlyInterest(balance, INTEREST_RATE);
     }
 
     /**
-     * Takes out monthly fee if balance is less than 1000
+     * Computes monthly fee, which is waived if balance is at least 1000
      * 
-     * @return New balance with monthly fee taken out of account (if applicable)
+     * @param balance Balance in cents
+     * @return Monthly fee in cents
      */
-    public double monthlyFee() {
-        if (balance >= 1000.0) { // Monthly fee is waived if balance is >= 1000
-            return balance;
+    @Override
+    long feeCents(long balance) {
+        return feeCentsFor(balance);
+    }
+
+    /**
+     * Computes the Checking monthly fee for a balance, which is waived if it is at least 1000
+     *
+     * @param balance Balance in cents
+     * @return Monthly fee in cents
+     */
+    static long feeCentsFor(long balance) {
+        if (balance >= FEE_WAIVED_BALANCE) { // Monthly fee is waived if balance is >= 1000
+            return 0;
         }
-        return balance -= MONTHLY_FEE;
+        return MONTHLY_FEE;
     }
 
     /**
@@ -61,41 +76,12 @@ public class Checking extends Account {
     }
 
     /**
-     * Method that is a getter method to return monthly interest of account type
-     * 
-     * @return Monthly interest amount
-     */
-    public double getInterest() {
-        return (INTEREST_RATE * balance) / 12;
-    }
-
-    /**
-     * Method that is a getter method to return monthly fee for account type
-     * 
-     * @return Monthly fee amount
-     */
-    public double getMonthlyFee() {
-        if(balance >= 1000) {
-            return 0.0;
-        }
-        return MONTHLY_FEE;
-    }
-
-    /**
-     * Returns a string for the account with all its information
-     * 
-     * @return String to represent the account
-     */
-    public String toString() {
-        return String.format("Checking::%s %s %s::Balance $%,.2f", holder.getFname(), holder.getLname(), holder.getDOB().toString(), balance);
-    }
-
-    /**
-     * Returns a string for the account with all its information
+     * Appends the account with all its information
      * 
-     * @return String to represent the account
+     * @param output StringBuilder the account is appended to
      */
-    public String toStringFeesInterest() {
-        return toString() + String.format("::fee $%,.2f::monthly interest $%,.2f", getMonthlyFee(), getInterest());
+    public void appendTo(StringBuilder output) {
+        output.append("Checking::");
+        appendHolderBalance(output);
     }
 }
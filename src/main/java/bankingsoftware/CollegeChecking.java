@@ -32,20 +32,15 @@ public class CollegeChecking extends Checking {
     }
 
     /**
-     * Returns balance of account
-     * Overrides monthlyFee() method of checking class since college checking
+     * Overrides feeCents() method of checking class since college checking
      * accounts have no monthly fee.
      * 
-     * @return Returns balance of account
+     * @param balance Balance in cents
+     * @return Returns 0
      */
     @Override
-    public double monthlyFee() {
-        return balance;
-    }
-
-    @Override
-    public double getMonthlyFee() {
-        return 0.0;
+    long feeCents(long balance) {
+        return 0;
     }
 
     /**
@@ -78,12 +73,23 @@ public class CollegeChecking extends Checking {
     }
 
     /**
-     * Returns a string for the account with all its information
+     * Getter method to return campus of college checking account.
+     *
+     * @return Campus, or null if the account was created without one
+     */
+    public Campus getCampus() {
+        return campus;
+    }
+
+    /**
+     * Appends the account with all its information
      * 
-     * @return String to represent the account
+     * @param output StringBuilder the account is appended to
      */
     @Override
-    public String toString() {
-        return String.format("College Checking::%s %s %s::Balance $%,.2f::%s", holder.getFname(), holder.getLname(), holder.getDOB().toString(), balance, campus.getCampus());
+    public void appendTo(StringBuilder output) {
+        output.append("College Checking::");
+        appendHolderBalance(output);
+        output.append("::").append(campus.getCampus());
     }
 }
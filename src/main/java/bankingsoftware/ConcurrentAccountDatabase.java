@@ -0,0 +1,712 @@
+package bankingsoftware;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConcurrentAccountDatabase class that can be shared by several threads, e.g.
+ * teller front ends and batch jobs.
+ * Accounts are guarded by a fixed set of striped locks keyed by the account
+ * holder, so deposits, withdrawals, opens and closes on accounts of different
+ * holders proceed in parallel. Lookups go through concurrent maps without locking.
+ * Opens and closes also update the array the reports read, under a short
+ * array lock. Reports lock every stripe only while they take the sorted
+ * accounts, or apply a month-end, so they list the accounts open between two
+ * transactions. The lines are written after the locks are released, so each
+ * line shows its account as it is when the line is written, and a slow
+ * reader of a report does not hold up other threads.
+ * <p>
+ * With a journal, an open, close, deposit or withdrawal is recorded and made
+ * durable while the stripe of the holder is held, and only then applied, so
+ * a change the journal could not write is never kept. Transactions on other
+ * stripes keep running and share the same force of the journal.
+ * <p>
+ * In lock-free mode, deposits and withdrawals do not take a lock at all: both
+ * are compare-and-set loops on the balance, so hot accounts such as a payroll
+ * account see no lock contention. Reports may then run while balances change, and month-end
+ * updates use compare-and-set so no deposit or withdrawal is lost. Closing an
+ * account sets its balance to Account.CLOSED, so a deposit or withdrawal that
+ * races with the close either lands before it or fails as not found, and
+ * reports leave out an account closed after they took the sorted accounts.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class ConcurrentAccountDatabase extends AccountDatabase {
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<Account, Account> live;
+    private final ConcurrentHashMap<Profile, Account[]> holders;
+    private final ReentrantLock arrayLock = new ReentrantLock(); // guards the array when holders of different stripes change it
+    private final boolean lockFree;
+
+    /**
+     * Constructor for an empty ConcurrentAccountDatabase
+     */
+    public ConcurrentAccountDatabase() {
+        this(0);
+    }
+
+    /**
+     * Constructor for ConcurrentAccountDatabase object that reserves room for a
+     * known number of accounts
+     *
+     * @param initialCapacity Number of accounts to reserve room for
+     */
+    public ConcurrentAccountDatabase(int initialCapacity) {
+        this(initialCapacity, 1.5);
+    }
+
+    /**
+     * Constructor for ConcurrentAccountDatabase object with an initial capacity
+     * and a growth policy for the array used by the reports
+     *
+     * @param initialCapacity Number of accounts to reserve room for
+     * @param growthFactor    Factor the capacity is multiplied by when the array is full, greater than 1
+     */
+    public ConcurrentAccountDatabase(int initialCapacity, double growthFactor) {
+        this(initialCapacity, growthFactor, false);
+    }
+
+    /**
+     * Constructor for ConcurrentAccountDatabase object that reserves room for a
+     * known number of accounts, in locking or lock-free mode
+     *
+     * @param initialCapacity Number of accounts to reserve room for
+     * @param lockFree        True to update balances with atomic operations instead of locks
+     */
+    public ConcurrentAccountDatabase(int initialCapacity, boolean lockFree) {
+        this(initialCapacity, 1.5, lockFree);
+    }
+
+    /**
+     * Constructor for ConcurrentAccountDatabase object with an initial capacity,
+     * a growth policy for the array used by the reports, and a locking mode
+     *
+     * @param initialCapacity Number of accounts to reserve room for
+     * @param growthFactor    Factor the capacity is multiplied by when the array is full, greater than 1
+     * @param lockFree        True to update balances with atomic operations instead of locks
+     */
+    public ConcurrentAccountDatabase(int initialCapacity, double growthFactor, boolean lockFree) {
+        super(initialCapacity, growthFactor);
+        this.lockFree = lockFree;
+        stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        live = new ConcurrentHashMap<>(initialCapacity);
+        holders = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    /**
+     * Returns the lock guarding the accounts of a holder
+     *
+     * @param holder Profile of the account holder
+     * @return Stripe lock of the holder
+     */
+    private ReentrantLock stripeFor(Profile holder) {
+        return stripes[stripeIndex(holder)];
+    }
+
+    /**
+     * Returns the number of the stripe that guards the accounts of a holder
+     */
+    private static int stripeIndex(Profile holder) {
+        int hash = holder.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Returns the account held in the database that equals the given account
+     *
+     * @param account Account to look up
+     * @return Account held in the database
+     * @throws IllegalArgumentException If the account is not in the database
+     */
+    private Account stored(Account account) {
+        Account accountInMap = live.get(account);
+        if (accountInMap == null) {
+            throw notInDatabase(account);
+        }
+        return accountInMap;
+    }
+
+    /**
+     * Creates the exception thrown for a transaction on an account that is not in the database
+     *
+     * @param account Account the transaction is on
+     * @return Exception naming the account
+     */
+    private static IllegalArgumentException notInDatabase(Account account) {
+        Profile holder = account.holder;
+        return new IllegalArgumentException(String.format("%s %s %s(%s) is not in the database.",
+                holder.getFname(), holder.getLname(), holder.getDOB(), account.getAccountTypeInitial()));
+    }
+
+    /**
+     * Checks if deposits and withdrawals update balances without locking
+     *
+     * @return True in lock-free mode, false otherwise
+     */
+    public boolean isLockFree() {
+        return lockFree;
+    }
+
+    /**
+     * Attaches a journal that records every change made to the database from now on.
+     * A journal needs the changes to each account in a single order, which
+     * lock-free mode does not give, so it can only be used in locking mode.
+     *
+     * @param journal Journal to record changes in, or null to stop recording
+     * @throws IllegalStateException If the database is in lock-free mode
+     */
+    @Override
+    public void setJournal(TransactionJournal journal) {
+        if (lockFree && journal != null) {
+            throw new IllegalStateException("A journal cannot be used in lock-free mode.");
+        }
+        lockAll();
+        try {
+            super.setJournal(journal);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Starts a new journal segment and copies the accounts as of that point,
+     * while holding every stripe so that no transaction falls between the two
+     *
+     * @param journal Journal of the database
+     * @return Copy of the accounts
+     * @throws IOException If the journal could not be written
+     */
+    @Override
+    AccountSnapshot captureSnapshot(TransactionJournal journal) throws IOException {
+        lockAll();
+        try {
+            return super.captureSnapshot(journal);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Checks if balances may be updated without a lock while a report runs
+     *
+     * @return True in lock-free mode, false otherwise
+     */
+    @Override
+    boolean atomicBalances() {
+        return lockFree;
+    }
+
+    /**
+     * Getter method to get number of accounts
+     *
+     * @return Number of accounts
+     */
+    @Override
+    public int getNumAcct() {
+        return live.size();
+    }
+
+    /**
+     * Getter method to get a copy of the accounts array, taken while every
+     * stripe is locked. The copy holds exactly the accounts in the database
+     * at that point, so its length is the number of accounts.
+     *
+     * @return Copy of the accounts array
+     */
+    @Override
+    public Account[] getAccountsArray() {
+        lockAll();
+        try {
+            return Arrays.copyOf(super.getAccountsArray(), super.getNumAcct());
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Removes every account while holding every stripe
+     */
+    @Override
+    void clear() {
+        lockAll();
+        try {
+            live.clear();
+            holders.clear();
+            super.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Does nothing, because the holders of a ConcurrentAccountDatabase are
+     * kept in its own concurrent holder index
+     *
+     * @param account Account being opened
+     */
+    @Override
+    void addHolding(Account account) {
+    }
+
+    /**
+     * Does nothing, because the holders of a ConcurrentAccountDatabase are
+     * kept in its own concurrent holder index
+     *
+     * @param account Account being closed
+     */
+    @Override
+    void removeHolding(Account account) {
+    }
+
+    /**
+     * Returns the account of the given holder whose type has the given initial.
+     *
+     * @param holder             Profile of the account holder
+     * @param accountTypeInitial Initial of the account type, e.g. "CC"
+     * @return The account in the database, or null if the holder has no such account
+     */
+    @Override
+    public Account getAccount(Profile holder, String accountTypeInitial) {
+        Account[] held = holders.get(holder);
+        if (held == null) {
+            return null;
+        }
+        for (Account account : held) {
+            if (account != null && account.getAccountTypeInitial().equals(accountTypeInitial)) {
+                return account;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a holder has any account of the given family.
+     *
+     * @param holder Profile of the account holder
+     * @param family Account class the holder's accounts are checked against
+     * @return True if the holder has an account that is an instance of family, false otherwise
+     */
+    @Override
+    public boolean holdsAccountOfType(Profile holder, Class<? extends Account> family) {
+        Account[] held = holders.get(holder);
+        if (held == null) {
+            return false;
+        }
+        for (Account account : held) {
+            if (family.isInstance(account)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes sure the database can hold at least the given number of accounts
+     * without growing again.
+     *
+     * @param minCapacity Number of accounts the database must be able to hold
+     */
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        lockAll();
+        try {
+            super.ensureCapacity(minCapacity);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Checks if account is in the database
+     *
+     * @param account Account to be searched for
+     * @return True if account is in the database, false otherwise
+     */
+    @Override
+    public boolean contains(Account account) {
+        return live.containsKey(account);
+    }
+
+    /**
+     * Opens a batch of accounts with one wait for the journal. With a journal,
+     * the stripes of every holder in the batch are locked, in order, from
+     * the first check until the accounts are added, so no other thread opens
+     * an account for those holders in between.
+     *
+     * @param accounts Accounts to open
+     * @param size     Number of accounts in the batch
+     * @param family   Account class a holder may only have one account of, or null for no check
+     * @return For each account, true if it is opened
+     * @throws UncheckedIOException If the journal could not be written, in which case no account is added
+     */
+    @Override
+    boolean[] openAll(Account[] accounts, int size, Class<? extends Account> family) {
+        if (getJournal() == null) {
+            return super.openAll(accounts, size, family);
+        }
+        boolean[] locked = new boolean[STRIPES];
+        for (int i = 0; i < size; i++) {
+            locked[stripeIndex(accounts[i].holder)] = true;
+        }
+        lockStripes(locked);
+        try {
+            return super.openAll(accounts, size, family);
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+
+    /**
+     * Adds an account whose open has been checked and is durable in the
+     * journal. The caller holds the stripe of the holder.
+     *
+     * @param account Account to be added
+     */
+    @Override
+    void addDurable(Account account) {
+        insert(account);
+    }
+
+    /**
+     * Records a new account in the journal and adds it once the record is
+     * durable, unless the account or an account of the family is already in
+     * the database. The stripe of the holder is held throughout, so no other
+     * thread opens an account for the holder in between.
+     *
+     * @param account Account to be added
+     * @param family  Account class the holder must not already have an account of, or null for no check
+     * @return True if new account is added, false otherwise
+     * @throws UncheckedIOException If the journal could not be written, in which case the account is not added
+     */
+    @Override
+    boolean openDurably(Account account, Class<? extends Account> family) {
+        ReentrantLock stripe = stripeFor(account.holder);
+        stripe.lock();
+        try {
+            if (live.containsKey(account) || family != null && holdsAccountOfType(account.holder, family)) {
+                return false;
+            }
+            awaitJournal(journalOpen(account));
+            insert(account);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Adds an account that is not in the database to the map, the holder
+     * index and the array. The caller holds the stripe of the holder.
+     *
+     * @param account Account to be added
+     */
+    private void insert(Account account) {
+        account.holder = getProfiles().intern(account.holder);
+        live.put(account, account);
+        Account[] held = holders.get(account.holder);
+        held = held == null ? new Account[NUM_TYPES] : held.clone();
+        held[typeOrder(account)] = account;
+        holders.put(account.holder, held);
+        arrayLock.lock();
+        try {
+            add(account);
+        } finally {
+            arrayLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a given account from the database.
+     * Only the stripe of the account holder is locked, so the account is not
+     * closed while a deposit or withdrawal on it is in progress. In lock-free
+     * mode the balance is set to Account.CLOSED first, so a deposit or
+     * withdrawal that found the account before it was removed fails.
+     *
+     * @param account Account to be removed
+     * @return True if given account is removed, false otherwise
+     * @throws UncheckedIOException If the journal could not be written, in which case the account is not removed
+     */
+    @Override
+    public boolean close(Account account) {
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            ReentrantLock stripe = stripeFor(account.holder);
+            stripe.lock();
+            try {
+                Account accountInMap = live.get(account);
+                if (accountInMap == null) {
+                    return false;
+                }
+                awaitJournal(journalClose(account));
+                if (lockFree) {
+                    accountInMap.closeAtomic();
+                }
+                live.remove(account);
+                Account[] held = holders.get(account.holder).clone();
+                held[typeOrder(accountInMap)] = null;
+                boolean empty = true;
+                for (Account other : held) {
+                    empty &= other == null;
+                }
+                if (empty) {
+                    holders.remove(account.holder);
+                    getProfiles().remove(account.holder);
+                } else {
+                    holders.put(account.holder, held);
+                }
+                arrayLock.lock();
+                try {
+                    remove(accountInMap);
+                } finally {
+                    arrayLock.unlock();
+                }
+            } finally {
+                stripe.unlock();
+            }
+            snapshotIfDue();
+            return true;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.CLOSE, start);
+            event.commit(DatabaseMetrics.Operation.CLOSE, account);
+        }
+    }
+
+    /**
+     * Checks if account has sufficient balance for withdrawal and withdraw from
+     * account while holding the stripe of the account holder, or with a
+     * compare-and-set loop in lock-free mode
+     *
+     * @param account Account to withdraw from, with the amount as its balance
+     * @return false if insufficient
+     * @throws IllegalArgumentException If the account is not in the database
+     * @throws UncheckedIOException     If the journal could not be written, in which case the balance is not changed
+     */
+    @Override
+    public boolean withdraw(Account account) {
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            if (lockFree) {
+                byte result = debitAtomic(stored(account), account.balance);
+                if (result == TransactionBatch.NOT_FOUND) {
+                    throw notInDatabase(account);
+                }
+                return result == TransactionBatch.APPLIED;
+            }
+            ReentrantLock stripe = stripeFor(account.holder);
+            stripe.lock();
+            try {
+                Account accountInMap = stored(account);
+                if (account.balance > accountInMap.balance) {
+                    return false;
+                }
+                awaitJournal(journalWithdraw(account, account.balance));
+                debit(accountInMap, account.balance);
+            } finally {
+                stripe.unlock();
+            }
+            snapshotIfDue();
+            return true;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.WITHDRAW, start);
+            event.commit(DatabaseMetrics.Operation.WITHDRAW, account);
+        }
+    }
+
+    /**
+     * Adds money to an account while holding the stripe of the account holder,
+     * or with a compare-and-set loop in lock-free mode
+     *
+     * @param account Account to deposit into, with the amount as its balance
+     * @throws IllegalArgumentException If the account is not in the database
+     * @throws ArithmeticException      If the balance would overflow, in which case it is not changed
+     * @throws UncheckedIOException     If the journal could not be written, in which case the balance is not changed
+     */
+    @Override
+    public void deposit(Account account) {
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            if (lockFree) {
+                if (creditAtomic(stored(account), account.balance) == TransactionBatch.NOT_FOUND) {
+                    throw notInDatabase(account);
+                }
+                return;
+            }
+            ReentrantLock stripe = stripeFor(account.holder);
+            stripe.lock();
+            try {
+                Account accountInMap = stored(account);
+                checkCredit(accountInMap, account.balance);
+                awaitJournal(journalDeposit(account, account.balance));
+                credit(accountInMap, account.balance);
+            } finally {
+                stripe.unlock();
+            }
+            snapshotIfDue();
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.DEPOSIT, start);
+            event.commit(DatabaseMetrics.Operation.DEPOSIT, account);
+        }
+    }
+
+    /**
+     * Applies the transactions of a batch that are on one account, holding the
+     * stripe of the account holder once for all of them, or without a lock in
+     * lock-free mode
+     *
+     * @param batch   Batch holding the transactions
+     * @param order   Transactions grouped by account
+     * @param start   First entry of order on the account
+     * @param end     Entry of order after the last one on the account
+     * @param results Result of each transaction
+     */
+    @Override
+    void applyGroup(TransactionBatch batch, long[] order, int start, int end, byte[] results) {
+        int first = (int) order[start];
+        Profile holder = batch.holder(first);
+        if (lockFree) {
+            applyGroup(batchAccount(holder, batch.type(first)), batch, order, start, end, results, true);
+            return;
+        }
+        ReentrantLock stripe = stripeFor(holder);
+        stripe.lock();
+        try {
+            applyGroup(batchAccount(holder, batch.type(first)), batch, order, start, end, results, false);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Returns the account a batch transaction on a holder's account of a type is applied to
+     *
+     * @param holder Profile of the account holder
+     * @param type   Type rank of the account
+     * @return The account, or null if the holder has no account of that type
+     */
+    @Override
+    Account batchAccount(Profile holder, int type) {
+        return heldAccount(holders.get(holder), type);
+    }
+
+    /**
+     * Records a batch in the journal and applies it once it is durable, while
+     * the stripes of every holder in the batch are locked in order, so no
+     * other thread changes those accounts between the records and the changes
+     *
+     * @param batch   Transactions to apply
+     * @param order   Transactions grouped by account, see TransactionBatch.groupedOrder
+     * @param results Result of each transaction
+     * @throws ArithmeticException  If a deposit would overflow a balance, in which case nothing is recorded
+     * @throws UncheckedIOException If the journal could not be written, in which case nothing is applied
+     */
+    @Override
+    void applyDurably(TransactionBatch batch, long[] order, byte[] results) {
+        boolean[] locked = new boolean[STRIPES];
+        for (int i = 0; i < batch.size(); i++) {
+            locked[stripeIndex(batch.holder(i))] = true;
+        }
+        lockStripes(locked);
+        try {
+            super.applyDurably(batch, order, results);
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+
+    /**
+     * Returns the accounts in order of account type and profile, taken while
+     * every stripe is locked. The locks are released before the caller writes
+     * the report, so a client that stops reading its report does not hold up
+     * the other tellers.
+     *
+     * @return Array holding the sorted accounts
+     */
+    @Override
+    Account[] sortedAccounts() {
+        lockAll();
+        try {
+            return super.sortedAccounts();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Records a month-end in the journal and applies the fees and interests
+     * to every account while every stripe is locked. The report is written
+     * after the locks are released.
+     *
+     * @param pool Pool that updates the accounts, or null to update them on the calling thread
+     * @return Updated accounts in order of account type and profile
+     * @throws UncheckedIOException If the journal could not be written, in which case no balance is changed
+     */
+    @Override
+    Account[] updateBalances(ForkJoinPool pool) {
+        lockAll();
+        try {
+            return super.updateBalances(pool);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Locks every stripe in order, so no account is opened or closed until unlockAll
+     */
+    private void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Unlocks every stripe in reverse order
+     */
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    /**
+     * Locks the marked stripes in order, the same order as lockAll, so
+     * threads that lock several stripes cannot deadlock
+     *
+     * @param locked Stripes to lock, indexed by stripe number
+     */
+    private void lockStripes(boolean[] locked) {
+        for (int i = 0; i < STRIPES; i++) {
+            if (locked[i]) {
+                stripes[i].lock();
+            }
+        }
+    }
+
+    /**
+     * Unlocks the marked stripes in reverse order
+     *
+     * @param locked Stripes to unlock, indexed by stripe number
+     */
+    private void unlockStripes(boolean[] locked) {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            if (locked[i]) {
+                stripes[i].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package bankingsoftware;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * DatabaseMetrics class that records what an AccountDatabase is doing: a
+ * count and latency histogram per kind of operation, how often the sorted
+ * view is dropped, and how many index slots lookups probe.
+ * <p>
+ * A database only records metrics after setMetrics is called. Without
+ * metrics each operation only checks that the metrics field is null, so the
+ * cost of the instrumentation is close to zero. Recording never locks,
+ * see Histogram, so one DatabaseMetrics can be shared by all threads of a
+ * ConcurrentAccountDatabase.
+ * <p>
+ * The metrics can be read through JMX, see register, or as text, see dump.
+ * Probe lengths are only recorded by databases that use open addressing,
+ * i.e. OffHeapAccountDatabase.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class DatabaseMetrics implements DatabaseMetricsMXBean {
+    /**
+     * Kinds of operation that are counted and timed
+     */
+    public enum Operation {
+        OPEN,
+        CLOSE,
+        DEPOSIT,
+        WITHDRAW,
+        BATCH,
+        SORT,
+        REPORT;
+
+        /**
+         * Returns the name of the operation as shown in the dump and JMX
+         *
+         * @return Name in lower case, e.g. "deposit"
+         */
+        public String displayName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final OperationMetrics[] operations = new OperationMetrics[OPERATIONS.length];
+    private final Histogram probes = new Histogram();
+    private final LongAdder sortInvalidations = new LongAdder();
+
+    /**
+     * Creates metrics with nothing recorded
+     */
+    public DatabaseMetrics() {
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new OperationMetrics();
+        }
+    }
+
+    /**
+     * Counts an operation that started at the given time
+     *
+     * @param operation  Kind of operation
+     * @param startNanos System.nanoTime() when the operation started
+     */
+    void record(Operation operation, long startNanos) {
+        operations[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Counts an index lookup
+     *
+     * @param probeLength Number of index slots the lookup read
+     */
+    void recordProbes(int probeLength) {
+        probes.record(probeLength);
+    }
+
+    /**
+     * Counts a drop of the sorted view
+     */
+    void sortInvalidated() {
+        sortInvalidations.increment();
+    }
+
+    /**
+     * Returns the metrics of one kind of operation
+     *
+     * @param operation Kind of operation
+     * @return Count and latencies of the operation
+     */
+    public OperationMetrics get(Operation operation) {
+        return operations[operation.ordinal()];
+    }
+
+    /**
+     * Getter method to get the number of times the sorted view was dropped
+     *
+     * @return Number of sort invalidations
+     */
+    @Override
+    public long getSortInvalidations() {
+        return sortInvalidations.sum();
+    }
+
+    /**
+     * Getter method to get the number of index lookups whose probe length was recorded
+     *
+     * @return Number of lookups
+     */
+    @Override
+    public long getLookups() {
+        return probes.count();
+    }
+
+    /**
+     * Getter method to get the mean number of index slots a lookup probed
+     *
+     * @return Mean probe length
+     */
+    @Override
+    public double getMeanProbeLength() {
+        return probes.mean();
+    }
+
+    /**
+     * Getter method to get the probe length that 99% of lookups did not exceed
+     *
+     * @return 99th percentile probe length
+     */
+    @Override
+    public long getP99ProbeLength() {
+        return probes.percentile(99);
+    }
+
+    /**
+     * Getter method to get the longest probe of a lookup
+     *
+     * @return Longest probe length
+     */
+    @Override
+    public long getMaxProbeLength() {
+        return probes.max();
+    }
+
+    /**
+     * Returns all metrics as text: a line per operation with its count and
+     * latencies in microseconds, then the sort invalidations and probe lengths
+     *
+     * @return Text dump of the metrics
+     */
+    @Override
+    public String dump() {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format(Locale.ROOT, "%-10s %12s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "mean(us)", "p50(us)", "p99(us)", "p99.9(us)", "max(us)"));
+        for (Operation operation : OPERATIONS) {
+            OperationMetrics metrics = get(operation);
+            output.append(String.format(Locale.ROOT, "%-10s %12d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    operation.displayName(), metrics.getCount(), metrics.getMeanNanos() / NANOS_PER_MICRO,
+                    metrics.getP50Nanos() / NANOS_PER_MICRO, metrics.getP99Nanos() / NANOS_PER_MICRO,
+                    metrics.getP999Nanos() / NANOS_PER_MICRO, metrics.getMaxNanos() / NANOS_PER_MICRO));
+        }
+        output.append(String.format(Locale.ROOT, "sort invalidations: %d%n", getSortInvalidations()));
+        output.append(String.format(Locale.ROOT, "index probes: lookups=%d mean=%.2f p99=%d max=%d%n",
+                getLookups(), getMeanProbeLength(), getP99ProbeLength(), getMaxProbeLength()));
+        return output.toString();
+    }
+
+    /**
+     * Clears all counts and histograms
+     */
+    @Override
+    public void reset() {
+        for (OperationMetrics metrics : operations) {
+            metrics.reset();
+        }
+        probes.reset();
+        sortInvalidations.reset();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, as
+     * "bankingsoftware:type=AccountDatabase,name=..." and one
+     * "bankingsoftware:type=AccountDatabase,name=...,operation=..." per kind of operation.
+     * The name is quoted with ObjectName.quote, e.g. name="server".
+     *
+     * @param name Name of the database, e.g. "server"
+     * @throws JMException If a bean with the same name is already registered
+     */
+    public void register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName(name, null));
+        for (Operation operation : OPERATIONS) {
+            server.registerMBean(get(operation), objectName(name, operation));
+        }
+    }
+
+    /**
+     * Removes the beans added by register
+     *
+     * @param name Name the metrics were registered with
+     * @throws JMException If the beans are not registered
+     */
+    public void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.unregisterMBean(objectName(name, null));
+        for (Operation operation : OPERATIONS) {
+            server.unregisterMBean(objectName(name, operation));
+        }
+    }
+
+    /**
+     * Returns the JMX name of the metrics, or of one kind of operation
+     *
+     * @throws JMException If the name is not valid
+     */
+    private static ObjectName objectName(String name, Operation operation) throws JMException {
+        String objectName = "bankingsoftware:type=AccountDatabase,name=" + ObjectName.quote(name);
+        if (operation != null) {
+            objectName += ",operation=" + operation.displayName();
+        }
+        return new ObjectName(objectName);
+    }
+}
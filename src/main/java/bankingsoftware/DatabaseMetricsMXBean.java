@@ -0,0 +1,56 @@
+package bankingsoftware;
+
+/**
+ * Management interface of DatabaseMetrics, for JMX clients such as JConsole
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public interface DatabaseMetricsMXBean {
+    /**
+     * Getter method to get the number of times the sorted view was dropped
+     * because an account was opened or closed
+     *
+     * @return Number of sort invalidations
+     */
+    long getSortInvalidations();
+
+    /**
+     * Getter method to get the number of index lookups whose probe length was recorded
+     *
+     * @return Number of lookups
+     */
+    long getLookups();
+
+    /**
+     * Getter method to get the mean number of index slots a lookup probed
+     *
+     * @return Mean probe length
+     */
+    double getMeanProbeLength();
+
+    /**
+     * Getter method to get the probe length that 99% of lookups did not exceed
+     *
+     * @return 99th percentile probe length
+     */
+    long getP99ProbeLength();
+
+    /**
+     * Getter method to get the longest probe of a lookup
+     *
+     * @return Longest probe length
+     */
+    long getMaxProbeLength();
+
+    /**
+     * Returns all metrics as text, one line per operation
+     *
+     * @return Text dump of the metrics
+     */
+    String dump();
+
+    /**
+     * Clears all counts and histograms
+     */
+    void reset();
+}
@@ -1,10 +1,12 @@
 package bankingsoftware;
-import java.util.Calendar;
-import java.util.StringTokenizer;
+import java.time.LocalDate;
+import java.time.ZoneId;
 
 /**
  * Date class that creates a date object
  * Has methods to compare 2 dates, to get today's date, check if is leap year, check if date is a valid calendar date, check if 2 dates are the same
+ * A date is held as one int of the form yyyymmdd, so dates compare as ints and
+ * pack into files as they are. Dates do not change once created.
  * @author Jia Wern Chong
  */
 
@@ -23,60 +25,122 @@ public class Date implements Comparable<Date> {
     public static final int CENTENNIAL = 100;
     public static final int QUATERCENTENNIAL = 400;
 
-    private int year;
-    private int month;
-    private int day;
+    private static final int MAX_FIELD = 99; // largest month or day that fits in yyyymmdd
+    private static final int MAX_YEAR = Integer.MAX_VALUE / 10000 - 1; // largest year that fits in yyyymmdd
+    private static final int MAX_DIGITS = 9; // digits of a part that cannot overflow an int
+
+    private static final int FIRST_CACHED_YEAR = 1900; // dates from 1900 to 2099 keep their text
+    private static final int CACHED_YEARS = 200;
+    private static final int SLOTS_PER_YEAR = MAX_MONTHS * MONTH_WITH_31DAYS;
+    private static final String[] TEXT_CACHE = new String[CACHED_YEARS * SLOTS_PER_YEAR];
+
+    private static volatile Date today; // today's date, until todayEndsAt in milliseconds
+    private static volatile long todayEndsAt;
+
+    private final int packed; // yyyymmdd
 
     /**
      * Constructor that takes in string in the form of "mm/dd/yy" and separate dates into individual categories
      * @param date
+     * @throws IllegalArgumentException if date is not three numbers separated by "/"
      */
     public Date(String date) {
-        StringTokenizer dateToken = new StringTokenizer(date, "/"); // Creates new StringTokenizer object to separate dates into tokens
-        while (dateToken.hasMoreTokens()){ // Iterates through the tokens and cast string into integers for the dates
-            month = Integer.parseInt(dateToken.nextToken());
-            day = Integer.parseInt(dateToken.nextToken());
-            year = Integer.parseInt(dateToken.nextToken());
-        }
+        this.packed = parse(date, 0, date.length()).packed;
+    }
+
+    /**
+     * Constructor that creates a date from its month, day and year
+     * A month or day above 99 is kept as 99 and a year outside 0 to 214747 is kept at the nearest end, so an invalid date stays invalid
+     * @param month month of the date
+     * @param day day of the date
+     * @param year year of the date
+     */
+    public Date(int month, int day, int year) {
+        this.packed = (clamp(year, MAX_YEAR) * 100 + clamp(month, MAX_FIELD)) * 100 + clamp(day, MAX_FIELD);
     }
 
     /**
      * Creates a date with today's date
      */
     public Date() {
-        Calendar todayDate = Calendar.getInstance(); //Creates a calendar object to get today's date
-        month = todayDate.get(Calendar.MONTH) + 1; // Get the current month from Calendar class
-        day = todayDate.get(Calendar.DAY_OF_MONTH); // Get the current day from Calendar class
-        year = todayDate.get(Calendar.YEAR); // Get the current year from Calendar class
+        this.packed = today().packed;
     }
 
     /**
-     * Compares 2 dates
+     * Creates a date from an int of the form yyyymmdd
      */
-    @Override
-    public int compareTo(Date other) {
-        // Compare years
-        int yearComparison = this.year - other.getYear();
-        if (yearComparison != 0) {
-            return yearComparison;
+    private Date(int packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Keeps a month, day or year between 0 and its largest value
+     */
+    private static int clamp(int value, int max) {
+        return Math.min(Math.max(value, 0), max);
+    }
+
+    /**
+     * Parses a date in the form "mm/dd/yyyy" from part of a line, without creating any other object
+     * @param line line holding the date
+     * @param start index of the first character of the date
+     * @param end index after the last character of the date
+     * @return the parsed date
+     * @throws IllegalArgumentException if the text is not a date
+     */
+    public static Date parse(CharSequence line, int start, int end) {
+        int month = 0;
+        int day = 0;
+        int value = 0;
+        int part = 0; // 0 for month, 1 for day, 2 for year
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '/' && part < 2 && digits > 0) {
+                if (part == 0) {
+                    month = value;
+                } else {
+                    day = value;
+                }
+                part++;
+                value = 0;
+                digits = 0;
+            } else if (Money.isDigit(c) && digits < MAX_DIGITS) {
+                value = value * 10 + (c - '0');
+                digits++;
+            } else {
+                throw new IllegalArgumentException("DOB invalid: is not a valid calendar date.");
+            }
         }
-        // Compare months
-        int monthComparison = this.month - other.getMonth();
-        if(monthComparison != 0) {
-            return monthComparison;
+        if (part != 2 || digits == 0) {
+            throw new IllegalArgumentException("DOB invalid: is not a valid calendar date.");
         }
+        return new Date(month, day, value);
+    }
 
-        // Compare days
-        int dayComparison = this.day - other.getDay();
-        return dayComparison;
+    /**
+     * Compares 2 dates
+     */
+    @Override
+    public int compareTo(Date other) {
+        return packed - other.packed; // both are between 0 and Integer.MAX_VALUE, so this cannot overflow
     }
 
     /**
      * Returns today's date
+     * The date is looked up once a day and shared until midnight
      * @return date
      */
     public static Date today () {
-        return new Date();
+        if (System.currentTimeMillis() >= todayEndsAt) { // Read todayEndsAt first, it is written after today
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate date = LocalDate.now(zone);
+            Date current = new Date(date.getMonthValue(), date.getDayOfMonth(), date.getYear());
+            today = current;
+            todayEndsAt = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return current;
+        }
+        return today;
     }
 
     /**
@@ -84,6 +148,7 @@ public class Date implements Comparable<Date> {
      * @return boolean
      */
     public boolean isLeapYear() { // Method to check if it is a leap year
+        int year = getYear();
         if(year%QUADRENNIAL == 0){
             if(year%CENTENNIAL == 0){
                 if(year%QUATERCENTENNIAL == 0){
@@ -141,10 +206,34 @@ public class Date implements Comparable<Date> {
 
     /**
      * Returns the textual representation of a Date object
+     * The text of a valid date from 1900 to 2099 is built once and shared
      */
     @Override
     public String toString() {
-        return month + "/" + day + "/" + year;
+        int year = getYear();
+        int month = getMonth();
+        int day = getDay();
+        if (year < FIRST_CACHED_YEAR || year >= FIRST_CACHED_YEAR + CACHED_YEARS
+                || month < MIN_MONTHS || month > MAX_MONTHS || day < MIN_DAYS || day > MONTH_WITH_31DAYS) {
+            return month + "/" + day + "/" + year;
+        }
+        int slot = (year - FIRST_CACHED_YEAR) * SLOTS_PER_YEAR + (month - MIN_MONTHS) * MONTH_WITH_31DAYS + day - MIN_DAYS;
+        String text = TEXT_CACHE[slot];
+        if (text == null) { // Strings are immutable, so a race only builds the same text twice
+            text = month + "/" + day + "/" + year;
+            TEXT_CACHE[slot] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Appends the textual representation of a Date object without creating a String
+     * The month, day and year are appended as digits, giving the same text as toString()
+     * @param output StringBuilder the date is appended to
+     * @return output, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        return output.append(getMonth()).append('/').append(getDay()).append('/').append(getYear());
     }
 
     /**
@@ -152,7 +241,7 @@ public class Date implements Comparable<Date> {
      * @return day
      */
     public int getDay() {
-        return day;
+        return packed % 100;
     }
 
     /**
@@ -160,7 +249,7 @@ public class Date implements Comparable<Date> {
      * @return month
      */
     public int getMonth() {
-        return month;
+        return packed / 100 % 100;
     }
 
     /**
@@ -168,7 +257,24 @@ public class Date implements Comparable<Date> {
      * @return year
      */
     public int getYear() {
-        return year;
+        return packed / 10000;
+    }
+
+    /**
+     * Packs the date into an int of the form yyyymmdd, e.g. for writing it to a file
+     * @return packed date
+     */
+    int pack() {
+        return packed;
+    }
+
+    /**
+     * Creates a date from an int packed by pack()
+     * @param packed date of the form yyyymmdd
+     * @return unpacked date
+     */
+    static Date unpack(int packed) {
+        return new Date(packed);
     }
 
     /**
@@ -183,9 +289,16 @@ public class Date implements Comparable<Date> {
         if (obj == null || getClass() != obj.getClass()) {
             return false;
         }
-        Date other = (Date) obj;
-        return ((getMonth() == other.getMonth()) && (getDay() == other.getDay())
-                && (getYear() == other.getYear()));
+        return packed == ((Date) obj).packed;
+    }
+
+    /**
+     * Returns a hash code consistent with equals()
+     * @return hash code of the date
+     */
+    @Override
+    public int hashCode() {
+        return packed;
     }
 
     /**
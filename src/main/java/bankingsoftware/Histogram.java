@@ -0,0 +1,175 @@
+package bankingsoftware;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram class that counts non-negative values, e.g. latencies in
+ * nanoseconds, in buckets of bounded relative error, like HdrHistogram.
+ * <p>
+ * Values below 16 have a bucket each. Every power of two above that is split
+ * into 8 buckets, so a value is known to within 12.5% with 488 buckets for
+ * the whole range of a long.
+ * <p>
+ * Recording never locks. Threads record into one of several stripes chosen
+ * by thread id, and each bucket of a stripe is an atomic counter, so
+ * threads on different stripes do not contend. Reading sums the stripes.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS; // values below have a bucket each
+    private static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;
+    static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - 1 - FIRST_EXPONENT) * SUB_BUCKETS;
+    private static final int MAX_STRIPES = 16;
+
+    private final AtomicLongArray[] stripes;
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates an empty histogram with about a stripe per processor, up to 16
+     */
+    Histogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    /**
+     * Returns the bucket of a value
+     *
+     * @param value Non-negative value
+     * @return Bucket index, from 0 to BUCKETS - 1
+     */
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) Math.max(value, 0);
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket
+     *
+     * @param bucket Bucket index
+     * @return Largest value of the bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+        int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + subBucket) * width) + width - 1;
+    }
+
+    /**
+     * Counts a value
+     *
+     * @param value Value to count, negative values are counted as 0
+     */
+    void record(long value) {
+        long counted = Math.max(value, 0);
+        stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)]
+                .getAndIncrement(bucketOf(counted));
+        sum.add(counted);
+        max.accumulate(counted);
+    }
+
+    /**
+     * Returns the number of values counted in each bucket, summed over the stripes
+     *
+     * @return Count of each bucket
+     */
+    long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                counts[bucket] += stripe.get(bucket);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the number of values counted
+     *
+     * @return Number of values
+     */
+    long count() {
+        long count = 0;
+        for (long bucketCount : counts()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean of the values counted
+     *
+     * @return Mean, or 0 if no value was counted
+     */
+    double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns the largest value counted
+     *
+     * @return Largest value, or 0 if no value was counted
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns a value that the given percentage of the counted values do not
+     * exceed, to within the precision of the buckets
+     *
+     * @param percentile Percentage from 0 to 100, e.g. 99.9
+     * @return Highest value of the bucket holding the percentile, or 0 if no value was counted
+     */
+    long percentile(double percentile) {
+        long[] counts = counts();
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Clears all counts. Values recorded while the histogram is being reset
+     * may be kept or lost.
+     */
+    void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                stripe.set(bucket, 0);
+            }
+        }
+        sum.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,155 @@
+package bankingsoftware;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LoadReport class that counts the accounts loaded from a file and keeps the
+ * reasons why rows were rejected or skipped as duplicates.
+ * Reasons are kept in line order, whatever order they are found in, and only
+ * the MAX_REASONS with the lowest line numbers are kept so that a large file
+ * with many bad rows does not fill up memory. This keeps the same reasons
+ * whether the file is loaded line by line or in chunks.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class LoadReport {
+    public static final int MAX_REASONS = 100;
+
+    private int loaded;
+    private int rejected;
+    private int duplicates;
+    private final List<String> reasons = new ArrayList<>();
+    private final List<Long> reasonLines = new ArrayList<>();
+
+    /**
+     * Counts an account that was opened in the database
+     */
+    void addLoaded() {
+        loaded++;
+    }
+
+    /**
+     * Counts a row that could not be turned into a valid account
+     *
+     * @param lineNumber Line number of the row in the file
+     * @param reason     Why the row was rejected
+     */
+    void addRejected(long lineNumber, String reason) {
+        rejected++;
+        addReason(lineNumber, reason);
+    }
+
+    /**
+     * Counts a row whose account is already in the database
+     *
+     * @param lineNumber Line number of the row in the file
+     * @param reason     Which account is already in the database
+     */
+    void addDuplicate(long lineNumber, String reason) {
+        duplicates++;
+        addReason(lineNumber, reason);
+    }
+
+    /**
+     * Adds the counts and reasons of another report to this report.
+     * Used to merge the report of a part of a file that starts after lineOffset lines.
+     *
+     * @param other      Report to add
+     * @param lineOffset Number of lines in the file before the lines of other
+     */
+    void add(LoadReport other, long lineOffset) {
+        loaded += other.loaded;
+        rejected += other.rejected;
+        duplicates += other.duplicates;
+        for (int i = 0; i < other.reasons.size(); i++) {
+            addReason(other.reasonLines.get(i) + lineOffset, other.reasons.get(i));
+        }
+    }
+
+    /**
+     * Keeps a reason in line order, dropping the reason with the highest line
+     * number if more than MAX_REASONS reasons would be kept
+     */
+    private void addReason(long lineNumber, String reason) {
+        int size = reasons.size();
+        if (size == MAX_REASONS && lineNumber >= reasonLines.get(size - 1)) {
+            return;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (reasonLines.get(middle) <= lineNumber) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        reasons.add(low, reason);
+        reasonLines.add(low, lineNumber);
+        if (size == MAX_REASONS) {
+            reasons.remove(MAX_REASONS);
+            reasonLines.remove(MAX_REASONS);
+        }
+    }
+
+    /**
+     * Getter method to get number of accounts loaded
+     *
+     * @return Number of accounts opened from the file
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Getter method to get number of rejected rows
+     *
+     * @return Number of rows with missing or invalid data
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Getter method to get number of duplicate rows
+     *
+     * @return Number of rows whose account was already in the database
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Getter method to get the reason kept with the highest line number, without its line number
+     *
+     * @return Last reason a row was rejected or skipped, or null if there is none
+     */
+    String getLastReason() {
+        return reasons.isEmpty() ? null : reasons.get(reasons.size() - 1);
+    }
+
+    /**
+     * Getter method to get the reasons rows were rejected or skipped, in line order
+     *
+     * @return Up to MAX_REASONS reasons, each starting with its line number
+     */
+    public List<String> getReasons() {
+        List<String> numbered = new ArrayList<>(reasons.size());
+        for (int i = 0; i < reasons.size(); i++) {
+            numbered.add("line " + reasonLines.get(i) + ": " + reasons.get(i));
+        }
+        return numbered;
+    }
+
+    /**
+     * Returns a one line summary of the load
+     *
+     * @return Counts of loaded, rejected and duplicate rows
+     */
+    @Override
+    public String toString() {
+        return String.format("%d loaded, %d rejected, %d duplicates", loaded, rejected, duplicates);
+    }
+}
@@ -0,0 +1,179 @@
+package bankingsoftware;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money class with helper methods for amounts kept as a long number of cents.
+ * Balances, fees and interest are computed in whole cents so that repeated
+ * monthly updates do not drift the way double arithmetic does.
+ * Fractions of a cent are rounded half to even (banker's rounding).
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public final class Money {
+    public static final long CENTS_PER_DOLLAR = 100;
+    public static final long BASIS_POINTS = 10_000;
+    public static final int MONTHS_PER_YEAR = 12;
+
+    /**
+     * Money only has static helper methods and is not instantiated
+     */
+    private Money() {
+    }
+
+    /**
+     * Converts a dollar amount into cents, rounding half to even
+     *
+     * @param dollars Amount in dollars
+     * @return Amount in cents
+     */
+    public static long toCents(double dollars) {
+        return BigDecimal.valueOf(dollars).movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    /**
+     * Parses a dollar amount such as "1500" or "3500.99" from part of a line into cents
+     * without creating a String. Amounts with more than two decimal places or in
+     * another format are parsed with Double.parseDouble and rounded half to even.
+     *
+     * @param text  Text holding the amount
+     * @param start Index of the first character of the amount
+     * @param end   Index after the last character of the amount
+     * @return Amount in cents
+     * @throws NumberFormatException If the text is not a number, or is too large to be kept in cents
+     */
+    public static long parseCents(CharSequence text, int start, int end) {
+        int i = start;
+        boolean negative = i < end && text.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long dollars = 0;
+        int digits = 0;
+        while (i < end && isDigit(text.charAt(i)) && digits < 15) {
+            dollars = dollars * 10 + (text.charAt(i++) - '0');
+            digits++;
+        }
+        long cents = 0;
+        int decimals = 0;
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(text.charAt(i)) && decimals < 2) {
+                cents = cents * 10 + (text.charAt(i++) - '0');
+                decimals++;
+            }
+        }
+        if (i != end || (digits == 0 && decimals == 0)) {
+            try {
+                return toCents(Double.parseDouble(text.subSequence(start, end).toString()));
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Amount is out of range: " + text.subSequence(start, end));
+            }
+        }
+        if (decimals == 1) {
+            cents *= 10;
+        }
+        long amount = dollars * CENTS_PER_DOLLAR + cents;
+        return negative ? -amount : amount;
+    }
+
+    /**
+     * Checks if a character is an ASCII digit
+     *
+     * @param c Character to check
+     * @return True if c is between '0' and '9', false otherwise
+     */
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Converts an amount in cents into dollars
+     *
+     * @param cents Amount in cents
+     * @return Amount in dollars
+     */
+    public static double toDollars(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Returns one month of interest on a balance at a yearly rate
+     *
+     * @param balance         Balance in cents
+     * @param rateBasisPoints Yearly interest rate in basis points, e.g. 425 for 4.25%
+     * @return Monthly interest in cents
+     */
+    public static long monthlyInterest(long balance, long rateBasisPoints) {
+        return multiplyDivide(balance, rateBasisPoints, BASIS_POINTS * MONTHS_PER_YEAR);
+    }
+
+    /**
+     * Computes value * numerator / denominator, rounding half to even.
+     * Throws ArithmeticException if the product overflows a long.
+     *
+     * @param value       Value to scale
+     * @param numerator   Multiplier
+     * @param denominator Positive divisor
+     * @return Rounded result
+     */
+    public static long multiplyDivide(long value, long numerator, long denominator) {
+        long product = Math.multiplyExact(value, numerator);
+        long quotient = Math.floorDiv(product, denominator);
+        long twiceRemainder = 2 * (product - quotient * denominator);
+
+        if (twiceRemainder > denominator || (twiceRemainder == denominator && (quotient & 1) != 0)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    /**
+     * Appends an amount in dollars with two decimal places and comma grouping,
+     * the same text as String.format("%,.2f") in an English locale, without
+     * creating a Formatter or boxing the amount.
+     *
+     * @param output StringBuilder the amount is appended to
+     * @param cents  Amount in cents
+     * @return output, for chaining
+     */
+    public static StringBuilder appendTo(StringBuilder output, long cents) {
+        long dollars = cents / CENTS_PER_DOLLAR;
+        int remainder = (int) (cents % CENTS_PER_DOLLAR);
+        if (cents < 0) {
+            output.append('-');
+            dollars = -dollars;
+            remainder = -remainder;
+        }
+        appendGrouped(output, dollars);
+        output.append('.');
+        if (remainder < 10) {
+            output.append('0');
+        }
+        return output.append(remainder);
+    }
+
+    /**
+     * Appends a non-negative whole number with a comma between each group of three digits
+     *
+     * @param output StringBuilder the number is appended to
+     * @param value  Non-negative number
+     */
+    private static void appendGrouped(StringBuilder output, long value) {
+        if (value < 1000) {
+            output.append(value);
+            return;
+        }
+        appendGrouped(output, value / 1000);
+        int group = (int) (value % 1000);
+        output.append(',');
+        if (group < 100) {
+            output.append('0');
+        }
+        if (group < 10) {
+            output.append('0');
+        }
+        output.append(group);
+    }
+}
@@ -1,5 +1,8 @@
 package bankingsoftware;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * Money Market class that extends savings.
  * It has its own interest fee and monthly fee.
@@ -7,12 +10,27 @@ package bankingsoftware;
  * @author Jia Wern Chong
  */
 public class MoneyMarket extends Savings {
-    private final static double INTEREST_RATE_NON_LOYAL = 0.045;
-    private final static double INTEREST_RATE_LOYAL = 0.0475;
-    private final static double MONTHLY_FEE = 25.0;
-    private final static double WITHDRAWAL_FEE = 10.0;
+    final static long INTEREST_RATE_NON_LOYAL = 450; // 4.5% in basis points
+    final static long INTEREST_RATE_LOYAL = 475; // 4.75% in basis points
+    private final static long MONTHLY_FEE = 2500; // $25.00 in cents
+    private final static long WITHDRAWAL_FEE = 1000; // $10.00 in cents
+    private final static int FREE_WITHDRAWALS = 3;
+    final static long LOYAL_BALANCE = 200000; // $2000.00 in cents, also waives the monthly fee
     private int withdrawal;
 
+    private static final VarHandle WITHDRAWAL;
+    private static final VarHandle IS_LOYAL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            WITHDRAWAL = lookup.findVarHandle(MoneyMarket.class, "withdrawal", int.class);
+            IS_LOYAL = lookup.findVarHandle(Savings.class, "isLoyal", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     /**
      * Initializes Money Market object by calling on its super class and adds
      * its own parameter of withdrawal
@@ -37,66 +55,89 @@ public class MoneyMarket extends Savings {
     }
 
     /**
-     * Applies monthly interest to account balance based on loyalty
-     * @return New balance with accured monthly interest
+     * Computes monthly interest on a balance based on loyalty
+     * @param balance Balance in cents
+     * @return Monthly interest in cents
      */
     @Override
-    public double monthlyInterest() {
+    long interestCents(long balance) {
         if (isLoyal) {
-            return balance += getInterest();
+            return Money.monthlyInterest(balance, INTEREST_RATE_LOYAL);
         } else {
-            return balance += getInterest();
+            return Money.monthlyInterest(balance, INTEREST_RATE_NON_LOYAL);
         }
     }
 
     /**
-     * Charges monthly fee if balance is less than 2000.0
-     * Charges withdrawal fee if number of withdrawal is more than 3
-     * @return New balance with monthly fee and/or withdrawal fee is taken out of account (if applicable)
+     * Computes monthly fee, charged if balance is less than 2000.0
+     * Adds withdrawal fee if number of withdrawal is more than 3
+     * @param balance Balance in cents
+     * @return Monthly fee and/or withdrawal fee in cents
      */
     @Override
-    public double monthlyFee() {
-        if (balance >= 2000.0) {
-            if (withdrawal > 3) {
-                return balance -= WITHDRAWAL_FEE;
-            } else {
-                return balance;
-            }
-        } else {
-            if (withdrawal > 3) {
-                balance -= WITHDRAWAL_FEE;
-                return balance -= MONTHLY_FEE;
-            } else {
-                return balance -= MONTHLY_FEE;
-            }
+    long feeCents(long balance) {
+        return feeCents(balance, withdrawal);
+    }
+
+    /**
+     * Computes monthly fee for a balance and a number of withdrawals
+     * @param balance     Balance in cents
+     * @param withdrawals Number of withdrawals this month
+     * @return Monthly fee and/or withdrawal fee in cents
+     */
+    static long feeCents(long balance, int withdrawals) {
+        long fee = balance >= LOYAL_BALANCE ? 0 : MONTHLY_FEE;
+        if (withdrawals > FREE_WITHDRAWALS) {
+            fee += WITHDRAWAL_FEE;
         }
+        return fee;
     }
 
     /**
-     * Gets monthly fee of account
-     * @return monthly fee
+     * Counts a withdrawal with an atomic increment
      */
-    @Override
-    public double getMonthlyFee() {
-        boolean overWithdrawal = withdrawal > 3;
+    void addWithdrawalAtomic() {
+        WITHDRAWAL.getAndAdd(this, 1);
+    }
 
-        if (balance >= 2000.0){
-            return overWithdrawal ? 10.0 : 0.0;
-        } else {
-            return overWithdrawal ? 35.0 : 25.0;
+    /**
+     * Sets isLoyal from a balance written by a compare-and-set.
+     * Another thread may change the balance in between, so the current
+     * balance is read back after isLoyal is set and the status is set again
+     * until the two agree. The last thread to set isLoyal always sees the
+     * latest balance.
+     * @param balance Balance in cents after the update
+     */
+    void updateLoyaltyAtomic(long balance) {
+        while (true) {
+            boolean loyal = balance >= LOYAL_BALANCE;
+            IS_LOYAL.setVolatile(this, loyal);
+            long current = (long) BALANCE.getVolatile(this);
+            if ((current >= LOYAL_BALANCE) == loyal) {
+                return;
+            }
+            balance = current;
         }
     }
 
     /**
-     * Gets monthly interest of account
-     * @return monthly interest
+     * Applies monthly interest and fees with a compare-and-set and resets the
+     * number of withdrawals. The withdrawals are taken and reset in one atomic
+     * step, so a withdrawal made during the update counts towards next month.
+     * A closed account is left as it is.
      */
     @Override
-    public double getInterest() {
-        if (isLoyal) {
-            return (INTEREST_RATE_LOYAL * balance) / 12;
-        } else {
-            return (INTEREST_RATE_NON_LOYAL * balance) / 12;
+    void applyMonthEndAtomic() {
+        int withdrawals = (int) WITHDRAWAL.getAndSet(this, 0);
+        long current = (long) BALANCE.getVolatile(this);
+        while (current != CLOSED) {
+            long updated = current + interestCents(current);
+            updated -= feeCents(updated, withdrawals);
+            long witness = (long) BALANCE.compareAndExchange(this, current, updated);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
         }
     }
 
@@ -137,13 +178,17 @@ public class MoneyMarket extends Savings {
     }
 
     /**
-     * Returns a string for the account with all its information
+     * Appends the account with all its information
      * 
-     * @return String to represent the account
+     * @param output StringBuilder the account is appended to
      */
     @Override
-    public String toString() {
-        String balanceString = isLoyal ? String.format("Balance $%,.2f::is loyal", balance) : String.format("Balance $%,.2f", balance);
-        return String.format("Money Market::Savings::%s %s %s::%s::withdrawal: %d", holder.getFname(), holder.getLname(), holder.getDOB().toString(), balanceString, withdrawal);
+    public void appendTo(StringBuilder output) {
+        output.append("Money Market::Savings::");
+        appendHolderBalance(output);
+        if (isLoyal) {
+            output.append("::is loyal");
+        }
+        output.append("::withdrawal: ").append(withdrawal);
     }
 }
@@ -0,0 +1,149 @@
+package bankingsoftware;
+
+/**
+ * MonthEndColumns class that applies monthly interest and fees to a range of
+ * accounts held as columns: parallel arrays of balance, type, loyalty and
+ * withdrawals.
+ * <p>
+ * The balances are copied out of the accounts, updated with one loop per
+ * account type, and copied back. Each loop uses the rates and static fee
+ * rules of its type directly, so there is no virtual call per account and
+ * the only choices left in a loop are the loyalty rate and the fee threshold. The
+ * results are the same as Account.monthlyInterest followed by monthlyFee.
+ * Accounts sorted by type form one run per type, so a sorted view needs at
+ * most four loops.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class MonthEndColumns {
+    private final long[] balances;
+    private final byte[] types;
+    private final boolean[] loyal;
+    private final int[] withdrawals;
+
+    /**
+     * Creates columns with room for a number of accounts
+     *
+     * @param capacity Largest number of accounts updated at once
+     */
+    MonthEndColumns(int capacity) {
+        balances = new long[capacity];
+        types = new byte[capacity];
+        loyal = new boolean[capacity];
+        withdrawals = new int[capacity];
+    }
+
+    /**
+     * Applies the fees and interests to a range of accounts, and resets the
+     * withdrawals of Money Market accounts to 0
+     *
+     * @param accounts Accounts to update
+     * @param start    First account to update
+     * @param end      Account after the last one to update
+     */
+    static void applyMonthEnd(Account[] accounts, int start, int end) {
+        new MonthEndColumns(end - start).apply(accounts, start, end);
+    }
+
+    /**
+     * Applies the fees and interests to a range of accounts using these
+     * columns, and resets the withdrawals of Money Market accounts to 0
+     *
+     * @param accounts Accounts to update
+     * @param start    First account to update
+     * @param end      Account after the last one to update, at most capacity after start
+     */
+    void apply(Account[] accounts, int start, int end) {
+        int size = end - start;
+        load(accounts, start, size);
+        int run = 0;
+        while (run < size) {
+            int type = types[run];
+            int runEnd = run + 1;
+            while (runEnd < size && types[runEnd] == type) {
+                runEnd++;
+            }
+            switch (type) {
+                case AccountDatabase.CHECKING -> applyChecking(run, runEnd);
+                case AccountDatabase.COLLEGE_CHECKING -> applyCollegeChecking(run, runEnd);
+                case AccountDatabase.MONEY_MARKET -> applyMoneyMarket(run, runEnd);
+                default -> applySavings(run, runEnd);
+            }
+            run = runEnd;
+        }
+        store(accounts, start, size);
+    }
+
+    /**
+     * Copies the balance, type, loyalty and withdrawals of the accounts into the columns
+     */
+    private void load(Account[] accounts, int start, int size) {
+        for (int i = 0; i < size; i++) {
+            Account account = accounts[start + i];
+            int type = AccountDatabase.typeOrder(account);
+            balances[i] = account.balance;
+            types[i] = (byte) type;
+            if (type >= AccountDatabase.MONEY_MARKET) {
+                loyal[i] = ((Savings) account).isLoyal;
+            }
+            if (type == AccountDatabase.MONEY_MARKET) {
+                withdrawals[i] = ((MoneyMarket) account).getWithdrawal();
+            }
+        }
+    }
+
+    /**
+     * Copies the updated balances back to the accounts and resets Money Market withdrawals
+     */
+    private void store(Account[] accounts, int start, int size) {
+        for (int i = 0; i < size; i++) {
+            Account account = accounts[start + i];
+            account.balance = balances[i];
+            if (types[i] == AccountDatabase.MONEY_MARKET) {
+                ((MoneyMarket) account).setWithdrawal(0);
+            }
+        }
+    }
+
+    /**
+     * Checking: 1% interest, then a fee unless the balance is at least $1000
+     */
+    private void applyChecking(int start, int end) {
+        for (int i = start; i < end; i++) {
+            long balance = balances[i] + Money.monthlyInterest(balances[i], Checking.INTEREST_RATE);
+            balances[i] = balance - Checking.feeCentsFor(balance);
+        }
+    }
+
+    /**
+     * College Checking: the Checking interest and no fee
+     */
+    private void applyCollegeChecking(int start, int end) {
+        for (int i = start; i < end; i++) {
+            balances[i] += Money.monthlyInterest(balances[i], Checking.INTEREST_RATE);
+        }
+    }
+
+    /**
+     * Savings: interest at the loyal or non-loyal rate, then a fee unless the balance is at least $500
+     */
+    private void applySavings(int start, int end) {
+        for (int i = start; i < end; i++) {
+            long rate = loyal[i] ? Savings.INTEREST_RATE_LOYAL : Savings.INTEREST_RATE_NON_LOYAL;
+            long balance = balances[i] + Money.monthlyInterest(balances[i], rate);
+            balances[i] = balance - Savings.feeCentsFor(balance);
+        }
+    }
+
+    /**
+     * Money Market: interest at the loyal or non-loyal rate, then the
+     * monthly and withdrawal fees
+     */
+    private void applyMoneyMarket(int start, int end) {
+        for (int i = start; i < end; i++) {
+            long rate = loyal[i] ? MoneyMarket.INTEREST_RATE_LOYAL : MoneyMarket.INTEREST_RATE_NON_LOYAL;
+            long balance = balances[i] + Money.monthlyInterest(balances[i], rate);
+            balances[i] = balance - MoneyMarket.feeCents(balance, withdrawals[i]);
+        }
+    }
+}
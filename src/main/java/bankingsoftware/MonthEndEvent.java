@@ -0,0 +1,41 @@
+package bankingsoftware;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * MonthEndEvent class that records a run of printUpdatesBalances in Java
+ * Flight Recorder: how many accounts were updated, whether on a pool, and
+ * how long it took.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@Name("bankingsoftware.MonthEnd")
+@Label("Month End")
+@Category({"Banking", "Account Database"})
+@Description("Fees and interests applied to every account of a database")
+class MonthEndEvent extends jdk.jfr.Event {
+    @Label("Accounts")
+    int accounts;
+
+    @Label("Parallel")
+    @Description("True if the accounts were updated on a ForkJoinPool")
+    boolean parallel;
+
+    /**
+     * Commits the event, if it is recorded, after setting its fields
+     *
+     * @param accounts Number of accounts updated
+     * @param parallel True if the accounts were updated on a pool
+     */
+    void commit(int accounts, boolean parallel) {
+        end();
+        if (shouldCommit()) {
+            this.accounts = accounts;
+            this.parallel = parallel;
+            commit();
+        }
+    }
+}
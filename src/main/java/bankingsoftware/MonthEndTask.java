@@ -0,0 +1,74 @@
+package bankingsoftware;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * MonthEndTask class that applies monthly interest and fees to a range of
+ * sorted accounts on a ForkJoinPool.
+ * The range is split into fixed size chunks, and each chunk is updated as
+ * columns, see MonthEndColumns, unless balances are updated with
+ * compare-and-set.
+ * RecursiveAction is Serializable, but tasks only live on a pool and are
+ * never serialized.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@SuppressWarnings("serial")
+class MonthEndTask extends RecursiveAction {
+    static final int CHUNK_SIZE = 4096;
+
+    private final Account[] view;
+    private final boolean atomic;
+    private final int firstChunk;
+    private final int lastChunk;
+
+    /**
+     * Returns the number of chunks needed for the given number of accounts
+     *
+     * @param numAcct Number of accounts
+     * @return Number of chunks
+     */
+    static int chunkCount(int numAcct) {
+        return (numAcct + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Creates a task for the chunks from firstChunk up to but not including lastChunk
+     *
+     * @param view       Accounts in sorted order
+     * @param atomic     True to update balances with compare-and-set
+     * @param firstChunk First chunk of this task
+     * @param lastChunk  Chunk after the last chunk of this task
+     */
+    MonthEndTask(Account[] view, boolean atomic, int firstChunk, int lastChunk) {
+        this.view = view;
+        this.atomic = atomic;
+        this.firstChunk = firstChunk;
+        this.lastChunk = lastChunk;
+    }
+
+    /**
+     * Splits the chunks in half until a single chunk is left, then updates its accounts
+     */
+    @Override
+    protected void compute() {
+        if (lastChunk - firstChunk > 1) {
+            int middle = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new MonthEndTask(view, atomic, firstChunk, middle),
+                    new MonthEndTask(view, atomic, middle, lastChunk));
+            return;
+        } else if (firstChunk == lastChunk) {
+            return;
+        }
+
+        int start = firstChunk * CHUNK_SIZE;
+        int end = Math.min(start + CHUNK_SIZE, view.length);
+        if (!atomic) {
+            MonthEndColumns.applyMonthEnd(view, start, end);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            AccountDatabase.applyMonthEnd(view[i], true);
+        }
+    }
+}
@@ -0,0 +1,827 @@
+package bankingsoftware;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * OffHeapAccountDatabase class that keeps the accounts outside the Java heap,
+ * for books of tens of millions of accounts.
+ * <p>
+ * Each account is a fixed size record in a memory-mapped file, or in direct
+ * memory if no file is given: the ids of the first and last name, the date of
+ * birth packed as yyyymmdd, a hash of the holder and type, the balance in
+ * cents, the withdrawals, the type and the campus code or loyalty. Names are
+ * kept once each in a pool that counts the records using each name, so a
+ * name is dropped once its last account is closed and its id is reused; the
+ * pool never holds more names than the open accounts use. Accounts are found through an open addressing
+ * table of record numbers, also outside the heap.
+ * <p>
+ * No Account objects are kept. Account and Profile objects are created from a
+ * record when a method needs one, e.g. to run a deposit or write a line of a
+ * report, and are discarded afterwards, so heap use depends on the number of
+ * distinct names rather than the number of accounts. Accounts returned by
+ * getAccount and getAccountsArray are copies: changing them does not change
+ * the database.
+ * <p>
+ * Like AccountDatabase, this class is not safe to share between threads.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class OffHeapAccountDatabase extends AccountDatabase implements Closeable {
+    private static final int RECORD_BYTES = 32;
+    private static final int FNAME = 0;
+    private static final int LNAME = 4;
+    private static final int DOB = 8;
+    private static final int HASH = 12;
+    private static final int BALANCE = 16;
+    private static final int WITHDRAWALS = 24;
+    private static final int TYPE = 28;
+    private static final int FLAG = 29;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+    private static final long CHUNK_BYTES = (long) CHUNK_RECORDS * RECORD_BYTES;
+    private static final int MIN_SLOTS = 16;
+    private static final int MAX_SLOTS = 1 << 28; // largest index whose bytes fit in one ByteBuffer
+    private static final int EMPTY = 0;
+    private static final int NOT_FOUND = -1;
+    private static final int LINE_CAPACITY = 128;
+
+    private static final Class<?>[] TYPE_CLASSES = {Checking.class, CollegeChecking.class, MoneyMarket.class,
+            Savings.class};
+
+    private final FileChannel channel;
+    private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+    private final ArrayList<String> names = new ArrayList<>();
+    private final HashMap<String, Integer> nameIds = new HashMap<>();
+    private int[] nameUses = new int[MIN_SLOTS]; // number of name fields of records holding each name id
+    private int[] freeNames = new int[MIN_SLOTS]; // ids of dropped names, to be reused
+    private int numFreeNames;
+    private ByteBuffer index;
+    private int indexMask;
+    private int numAcct;
+    private int[] sortedView;
+
+    /**
+     * Creates an empty database whose records are kept in direct memory
+     */
+    public OffHeapAccountDatabase() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty database in direct memory that reserves room for a
+     * known number of accounts
+     *
+     * @param initialCapacity Number of accounts to reserve room for
+     */
+    public OffHeapAccountDatabase(int initialCapacity) {
+        super(0);
+        channel = null;
+        init(initialCapacity);
+    }
+
+    /**
+     * Creates an empty database whose records are kept in a memory-mapped file.
+     * The file only holds the records while the database is in use; names are
+     * kept on the heap, so use a TransactionJournal to keep the accounts
+     * between runs.
+     *
+     * @param file            File to map, created or emptied
+     * @param initialCapacity Number of accounts to reserve room for
+     * @throws IOException If the file cannot be opened or mapped
+     */
+    public OffHeapAccountDatabase(Path file, int initialCapacity) throws IOException {
+        super(0);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            init(initialCapacity);
+        } catch (UncheckedIOException e) {
+            channel.close();
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Checks the initial capacity and reserves the records and index for it
+     */
+    private void init(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity cannot be negative: " + initialCapacity);
+        }
+        index = ByteBuffer.allocateDirect(MIN_SLOTS * Integer.BYTES).order(ByteOrder.nativeOrder());
+        indexMask = MIN_SLOTS - 1;
+        reserve(Math.max(initialCapacity, 1));
+    }
+
+    /**
+     * Closes the mapped file, if there is one. The database must not be used afterwards.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Getter method to get number of accounts
+     *
+     * @return Number of accounts
+     */
+    @Override
+    public int getNumAcct() {
+        return numAcct;
+    }
+
+    /**
+     * Getter method to get accounts array.
+     * The accounts are copies of the records, created by this call.
+     *
+     * @return Array holding a copy of every account
+     */
+    @Override
+    public Account[] getAccountsArray() {
+        Account[] accounts = new Account[numAcct];
+        for (int record = 0; record < numAcct; record++) {
+            accounts[record] = view(record, profile(record));
+        }
+        return accounts;
+    }
+
+    /**
+     * Returns a copy of the account of the given holder whose type has the given initial.
+     *
+     * @param holder             Profile of the account holder
+     * @param accountTypeInitial Initial of the account type, e.g. "CC"
+     * @return Copy of the account, or null if the holder has no such account
+     */
+    @Override
+    public Account getAccount(Profile holder, String accountTypeInitial) {
+        int type = AccountLoader.typeOf(accountTypeInitial, 0, accountTypeInitial.length());
+        int record = type < 0 ? NOT_FOUND : find(holder, type);
+        return record == NOT_FOUND ? null : view(record, profile(record));
+    }
+
+    /**
+     * Checks if a holder has any account of the given family.
+     *
+     * @param holder Profile of the account holder
+     * @param family Account class the holder's accounts are checked against
+     * @return True if the holder has an account that is an instance of family, false otherwise
+     */
+    @Override
+    public boolean holdsAccountOfType(Profile holder, Class<? extends Account> family) {
+        for (int type = 0; type < NUM_TYPES; type++) {
+            if (family.isAssignableFrom(TYPE_CLASSES[type]) && find(holder, type) != NOT_FOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes sure the records and index can hold at least the given number of
+     * accounts without growing again.
+     *
+     * @param minCapacity Number of accounts the database must be able to hold
+     * @throws UncheckedIOException If the mapped file cannot be extended
+     */
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        reserve(minCapacity);
+    }
+
+    /**
+     * Adds chunks and grows the index until they can hold the given number of
+     * accounts. Constructors call this instead of the overridable ensureCapacity.
+     *
+     * @param minCapacity Number of accounts the database must be able to hold
+     * @throws UncheckedIOException If the mapped file cannot be extended
+     */
+    private void reserve(int minCapacity) {
+        if (2L * minCapacity > indexMask + 1L) {
+            resizeIndex(minCapacity);
+        }
+        while ((long) chunks.size() * CHUNK_RECORDS < minCapacity) {
+            chunks.add(newChunk(chunks.size()));
+        }
+    }
+
+    /**
+     * Maps the next part of the file, or allocates direct memory, for a chunk of records
+     *
+     * @param chunk Number of the chunk
+     * @return Buffer holding the records of the chunk
+     */
+    private ByteBuffer newChunk(int chunk) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect((int) CHUNK_BYTES).order(ByteOrder.nativeOrder());
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, chunk * CHUNK_BYTES, CHUNK_BYTES)
+                    .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks if account is in the database
+     *
+     * @param account Account to be searched for
+     * @return True if account is in the database, false otherwise
+     */
+    @Override
+    public boolean contains(Account account) {
+        return find(account.holder, typeOrder(account)) != NOT_FOUND;
+    }
+
+    /**
+     * Writes a new account to the next record and adds it to the index
+     *
+     * @param account Account to be added
+     * @return True if new account is added, false if it is already in the database
+     */
+    @Override
+    boolean add(Account account) {
+        int type = typeOrder(account);
+        if (find(account.holder, type) != NOT_FOUND) {
+            return false;
+        }
+        ensureCapacity(numAcct + 1);
+        int record = numAcct;
+        ByteBuffer chunk = chunk(record);
+        int offset = offset(record);
+        int hash = hash(account.holder, type);
+        chunk.putInt(offset + FNAME, intern(account.holder.getFname()))
+                .putInt(offset + LNAME, intern(account.holder.getLname()))
+                .putInt(offset + DOB, account.holder.getDOB().pack())
+                .putInt(offset + HASH, hash)
+                .put(offset + TYPE, (byte) type);
+        store(record, account);
+        insert(record, hash);
+        numAcct += 1;
+        invalidateSortedView();
+        return true;
+    }
+
+    /**
+     * Removes an account. The last record is moved into the freed one, so
+     * removal takes constant time after the lookup. If the database has a
+     * journal, the account is only removed once its record is durable.
+     *
+     * @param account Account to be removed
+     * @return True if given account is removed, false otherwise
+     * @throws UncheckedIOException If the journal could not be written, in which case the account is not removed
+     */
+    @Override
+    public boolean close(Account account) {
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            int record = find(account.holder, typeOrder(account));
+            if (record == NOT_FOUND) {
+                return false;
+            }
+            awaitJournal(journalClose(account));
+            release(chunk(record).getInt(offset(record) + FNAME));
+            release(chunk(record).getInt(offset(record) + LNAME));
+            removeSlot(slotOf(record));
+            int last = numAcct - 1;
+            if (record != last) {
+                int slot = slotOf(last);
+                chunk(record).put(offset(record), chunk(last), offset(last), RECORD_BYTES);
+                index.putInt(slot * Integer.BYTES, record + 1);
+            }
+            numAcct -= 1;
+            invalidateSortedView();
+            snapshotIfDue();
+            return true;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.CLOSE, start);
+            event.commit(DatabaseMetrics.Operation.CLOSE, account);
+        }
+    }
+
+    /**
+     * Removes every account and empties the name pool, keeping the records and index for reuse
+     */
+    @Override
+    void clear() {
+        for (int slot = 0; slot <= indexMask; slot++) {
+            index.putInt(slot * Integer.BYTES, EMPTY);
+        }
+        names.clear();
+        nameIds.clear();
+        Arrays.fill(nameUses, 0);
+        numFreeNames = 0;
+        numAcct = 0;
+        invalidateSortedView();
+    }
+
+    /**
+     * Drops the sorted order after an account is opened or closed, counting it in the metrics
+     */
+    private void invalidateSortedView() {
+        if (sortedView != null) {
+            sortedView = null;
+            countSortInvalidation();
+        }
+    }
+
+    /**
+     * Checks if account has sufficient balance for withdrawal and withdraw from account
+     *
+     * @param account Account to withdraw from, its balance is the amount
+     * @return false if insufficient
+     * @throws IllegalArgumentException If the account is not in the database
+     * @throws UncheckedIOException     If the journal could not be written, in which case the balance is not changed
+     */
+    @Override
+    public boolean withdraw(Account account) {
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            int record = stored(account);
+            Account accountInStore = view(record, account.holder);
+            if (account.balance > accountInStore.balance) {
+                return false;
+            }
+            awaitJournal(journalWithdraw(account, account.balance));
+            debit(accountInStore, account.balance);
+            store(record, accountInStore);
+            snapshotIfDue();
+            return true;
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.WITHDRAW, start);
+            event.commit(DatabaseMetrics.Operation.WITHDRAW, account);
+        }
+    }
+
+    /**
+     * Adds money to an account
+     *
+     * @param account Account to deposit into, its balance is the amount
+     * @throws IllegalArgumentException If the account is not in the database
+     * @throws ArithmeticException      If the balance would overflow, in which case it is not changed
+     * @throws UncheckedIOException     If the journal could not be written, in which case the balance is not changed
+     */
+    @Override
+    public void deposit(Account account) {
+        long start = startTiming();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        try {
+            int record = stored(account);
+            Account accountInStore = view(record, account.holder);
+            checkCredit(accountInStore, account.balance);
+            awaitJournal(journalDeposit(account, account.balance));
+            credit(accountInStore, account.balance);
+            store(record, accountInStore);
+            snapshotIfDue();
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.DEPOSIT, start);
+            event.commit(DatabaseMetrics.Operation.DEPOSIT, account);
+        }
+    }
+
+    /**
+     * Applies the transactions of a batch that are on one account, reading
+     * and writing its record once
+     *
+     * @param batch   Batch holding the transactions
+     * @param order   Transactions grouped by account, see TransactionBatch.groupedOrder
+     * @param start   First entry of order on the account
+     * @param end     Entry of order after the last one on the account
+     * @param results Result of each transaction
+     */
+    @Override
+    void applyGroup(TransactionBatch batch, long[] order, int start, int end, byte[] results) {
+        int first = (int) order[start];
+        Account accountInStore = batchAccount(batch.holder(first), batch.type(first));
+        applyGroup(accountInStore, batch, order, start, end, results, false);
+        if (accountInStore != null) {
+            storeBatchAccount(accountInStore);
+        }
+    }
+
+    /**
+     * Returns a copy of the record a batch transaction on a holder's account of a type is applied to
+     *
+     * @param holder Profile of the account holder
+     * @param type   Type rank of the account
+     * @return Copy of the account, or null if the holder has no account of that type
+     */
+    @Override
+    Account batchAccount(Profile holder, int type) {
+        int record = find(holder, type);
+        return record == NOT_FOUND ? null : view(record, profile(record));
+    }
+
+    /**
+     * Writes the changes a batch made to a copy returned by batchAccount back to its record
+     *
+     * @param account Copy returned by batchAccount
+     */
+    @Override
+    void storeBatchAccount(Account account) {
+        store(find(account.holder, typeOrder(account)), account);
+    }
+
+    /**
+     * Starts a new journal segment and copies the accounts as of that point.
+     * The accounts are created from the records for the snapshot to write.
+     *
+     * @param journal Journal of the database
+     * @return Copy of the accounts
+     * @throws IOException If the journal could not be written
+     */
+    @Override
+    AccountSnapshot captureSnapshot(TransactionJournal journal) throws IOException {
+        long segment = journal.roll();
+        return new AccountSnapshot(getAccountsArray(), numAcct, segment);
+    }
+
+    /**
+     * Writes accounts in order of account type and profile to an output sink
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @throws IOException If writing to the sink fails
+     */
+    @Override
+    public void printSorted(Appendable output) throws IOException {
+        long start = startTiming();
+        try {
+            int[] view = sortedRecords();
+            StringBuilder line = new StringBuilder(LINE_CAPACITY);
+            for (int i = 0; i < numAcct; i++) {
+                line.setLength(0);
+                view(view[i], profile(view[i])).appendTo(line);
+                output.append(line.append('\n'));
+            }
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.REPORT, start);
+        }
+    }
+
+    /**
+     * Writes accounts with their fees and interests to an output sink
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @throws IOException If writing to the sink fails
+     */
+    @Override
+    public void printFeesAndInterests(Appendable output) throws IOException {
+        long start = startTiming();
+        try {
+            int[] view = sortedRecords();
+            StringBuilder line = new StringBuilder(LINE_CAPACITY);
+            for (int i = 0; i < numAcct; i++) {
+                line.setLength(0);
+                view(view[i], profile(view[i])).appendFeesInterestTo(line);
+                output.append(line.append('\n'));
+            }
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.REPORT, start);
+        }
+    }
+
+    /**
+     * Applies the fees and interests and writes the updated accounts to an output sink.
+     * The records are updated in one pass on the calling thread, and the
+     * lines are written in a second pass, so if writing to the sink fails the
+     * whole month-end has still been applied, as its journal record says.
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @throws IOException If writing to the sink fails, after the balances are updated
+     */
+    @Override
+    public void printUpdatesBalances(Appendable output) throws IOException {
+        long start = startTiming();
+        MonthEndEvent event = new MonthEndEvent();
+        event.begin();
+        try {
+            int[] view = sortedRecords();
+            awaitJournal(journalMonthEnd());
+            for (int i = 0; i < numAcct; i++) {
+                Account account = view(view[i], profile(view[i]));
+                applyMonthEnd(account);
+                store(view[i], account);
+            }
+            snapshotIfDue();
+            StringBuilder line = new StringBuilder(LINE_CAPACITY);
+            for (int i = 0; i < numAcct; i++) {
+                line.setLength(0);
+                view(view[i], profile(view[i])).appendTo(line);
+                output.append(line.append('\n'));
+            }
+        } finally {
+            stopTiming(DatabaseMetrics.Operation.REPORT, start);
+            event.commit(numAcct, false);
+        }
+    }
+
+    /**
+     * Applies the fees and interests and writes the updated accounts to an
+     * output sink. The records are updated on the calling thread; the pool is not used.
+     *
+     * @param output Sink the report is written to, e.g. a Writer
+     * @param pool   Not used
+     * @throws IOException If writing to the sink fails
+     */
+    @Override
+    public void printUpdatesBalances(Appendable output, ForkJoinPool pool) throws IOException {
+        printUpdatesBalances(output);
+    }
+
+    /**
+     * Returns the chunk holding a record
+     */
+    private ByteBuffer chunk(int record) {
+        return chunks.get(record >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Returns the position of a record in its chunk
+     */
+    private static int offset(int record) {
+        return (record & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+    }
+
+    /**
+     * Returns the id of a name in the name pool and counts one more use of it,
+     * adding the name if it is new under a dropped id or the next one
+     */
+    private int intern(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            if (numFreeNames > 0) {
+                id = freeNames[--numFreeNames];
+                names.set(id, name);
+            } else {
+                id = names.size();
+                names.add(name);
+                if (id == nameUses.length) {
+                    nameUses = Arrays.copyOf(nameUses, id * 2);
+                }
+            }
+            nameIds.put(name, id);
+        }
+        nameUses[id] += 1;
+        return id;
+    }
+
+    /**
+     * Counts one less use of a name id, dropping the name from the pool when it is no longer used
+     */
+    private void release(int id) {
+        nameUses[id] -= 1;
+        if (nameUses[id] == 0) {
+            nameIds.remove(names.get(id));
+            names.set(id, null);
+            if (numFreeNames == freeNames.length) {
+                freeNames = Arrays.copyOf(freeNames, numFreeNames * 2);
+            }
+            freeNames[numFreeNames++] = id;
+        }
+    }
+
+    /**
+     * Getter method to get number of names in the name pool
+     *
+     * @return Number of distinct names used by the accounts
+     */
+    int getNumNames() {
+        return nameIds.size();
+    }
+
+    /**
+     * Creates the profile of a record's holder
+     */
+    private Profile profile(int record) {
+        ByteBuffer chunk = chunk(record);
+        int offset = offset(record);
+        return new Profile(names.get(chunk.getInt(offset + FNAME)), names.get(chunk.getInt(offset + LNAME)),
+                Date.unpack(chunk.getInt(offset + DOB)));
+    }
+
+    /**
+     * Creates an account from a record
+     *
+     * @param record Number of the record
+     * @param holder Profile to give the account
+     * @return Account with the type, balance and status of the record
+     */
+    private Account view(int record, Profile holder) {
+        ByteBuffer chunk = chunk(record);
+        int offset = offset(record);
+        return TransactionJournal.restore(chunk.get(offset + TYPE), holder, chunk.getLong(offset + BALANCE),
+                chunk.get(offset + FLAG), chunk.getInt(offset + WITHDRAWALS));
+    }
+
+    /**
+     * Writes the balance and status of an account to its record
+     *
+     * @param record  Number of the record
+     * @param account Account holding the new balance and status
+     */
+    private void store(int record, Account account) {
+        ByteBuffer chunk = chunk(record);
+        int offset = offset(record);
+        chunk.putLong(offset + BALANCE, account.balance)
+                .putInt(offset + WITHDRAWALS, TransactionJournal.withdrawalsOf(account))
+                .put(offset + FLAG, (byte) TransactionJournal.flagOf(account));
+    }
+
+    /**
+     * Returns the record of an account
+     *
+     * @throws IllegalArgumentException If the account is not in the database
+     */
+    private int stored(Account account) {
+        int record = find(account.holder, typeOrder(account));
+        if (record == NOT_FOUND) {
+            Profile holder = account.holder;
+            throw new IllegalArgumentException(String.format("%s %s %s(%s) is not in the database.",
+                    holder.getFname(), holder.getLname(), holder.getDOB(), account.getAccountTypeInitial()));
+        }
+        return record;
+    }
+
+    /**
+     * Returns the hash of an account with a holder and type
+     */
+    private static int hash(Profile holder, int type) {
+        return 31 * holder.hashCode() + type;
+    }
+
+    /**
+     * Returns the index slot a hash is placed in first
+     */
+    private int home(int hash) {
+        return (hash ^ (hash >>> 16)) & indexMask;
+    }
+
+    /**
+     * Finds the record of a holder's account of a type
+     *
+     * @param holder Profile of the account holder
+     * @param type   Type rank of the account
+     * @return Number of the record, or -1 if there is no such account
+     */
+    private int find(Profile holder, int type) {
+        int hash = hash(holder, type);
+        int probes = 1;
+        for (int slot = home(hash); ; slot = (slot + 1) & indexMask, probes++) {
+            int entry = index.getInt(slot * Integer.BYTES);
+            if (entry == EMPTY) {
+                countProbes(probes);
+                return NOT_FOUND;
+            }
+            int record = entry - 1;
+            if (matches(record, hash, type, holder)) {
+                countProbes(probes);
+                return record;
+            }
+        }
+    }
+
+    /**
+     * Counts the probe length of a lookup in the metrics, if there are any
+     */
+    private void countProbes(int probes) {
+        DatabaseMetrics metrics = getMetrics();
+        if (metrics != null) {
+            metrics.recordProbes(probes);
+        }
+    }
+
+    /**
+     * Checks if a record is the account of a holder and type, comparing names
+     * ignoring case like Profile.equals
+     */
+    private boolean matches(int record, int hash, int type, Profile holder) {
+        ByteBuffer chunk = chunk(record);
+        int offset = offset(record);
+        return chunk.getInt(offset + HASH) == hash && chunk.get(offset + TYPE) == type
+                && chunk.getInt(offset + DOB) == holder.getDOB().pack()
+                && names.get(chunk.getInt(offset + FNAME)).equalsIgnoreCase(holder.getFname())
+                && names.get(chunk.getInt(offset + LNAME)).equalsIgnoreCase(holder.getLname());
+    }
+
+    /**
+     * Adds a record to the first free slot from its hash's home slot
+     */
+    private void insert(int record, int hash) {
+        int slot = home(hash);
+        while (index.getInt(slot * Integer.BYTES) != EMPTY) {
+            slot = (slot + 1) & indexMask;
+        }
+        index.putInt(slot * Integer.BYTES, record + 1);
+    }
+
+    /**
+     * Returns the index slot holding a record
+     */
+    private int slotOf(int record) {
+        int slot = home(chunk(record).getInt(offset(record) + HASH));
+        while (index.getInt(slot * Integer.BYTES) != record + 1) {
+            slot = (slot + 1) & indexMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot, moving back the entries after it that would otherwise
+     * no longer be reachable from their home slot
+     */
+    private void removeSlot(int slot) {
+        int free = slot;
+        for (int next = (free + 1) & indexMask; ; next = (next + 1) & indexMask) {
+            int entry = index.getInt(next * Integer.BYTES);
+            if (entry == EMPTY) {
+                break;
+            }
+            int home = home(chunk(entry - 1).getInt(offset(entry - 1) + HASH));
+            if (((next - home) & indexMask) >= ((next - free) & indexMask)) {
+                index.putInt(free * Integer.BYTES, entry);
+                free = next;
+            }
+        }
+        index.putInt(free * Integer.BYTES, EMPTY);
+    }
+
+    /**
+     * Replaces the index with one that is at most half full with the given number of accounts.
+     * The index is one ByteBuffer, so it has at most MAX_SLOTS slots.
+     *
+     * @throws OutOfMemoryError If the index cannot be made large enough
+     */
+    private void resizeIndex(int minCapacity) {
+        int slots = MIN_SLOTS;
+        while (slots < 2L * minCapacity) {
+            if (slots == MAX_SLOTS) {
+                throw new OutOfMemoryError("Account database cannot hold " + minCapacity + " accounts");
+            }
+            slots <<= 1;
+        }
+        index = ByteBuffer.allocateDirect(slots * Integer.BYTES).order(ByteOrder.nativeOrder());
+        indexMask = slots - 1;
+        for (int record = 0; record < numAcct; record++) {
+            insert(record, chunk(record).getInt(offset(record) + HASH));
+        }
+    }
+
+    /**
+     * Returns the records in order of account type and profile.
+     * The order is cached and only rebuilt after an account is opened or closed.
+     *
+     * @return Array whose first numAcct entries are the sorted record numbers
+     */
+    private int[] sortedRecords() {
+        if (sortedView == null) {
+            long start = startTiming();
+            sortedView = AccountSorter.sort(numAcct, new AccountSorter.Source() {
+                @Override
+                public long key(int record, int level) {
+                    return AccountSorter.key(chunk(record).get(offset(record) + TYPE), lname(record), fname(record),
+                            dob(record), level);
+                }
+
+                @Override
+                public String lname(int record) {
+                    return names.get(chunk(record).getInt(offset(record) + LNAME));
+                }
+
+                @Override
+                public String fname(int record) {
+                    return names.get(chunk(record).getInt(offset(record) + FNAME));
+                }
+
+                @Override
+                public int dob(int record) {
+                    return chunk(record).getInt(offset(record) + DOB);
+                }
+            });
+            stopTiming(DatabaseMetrics.Operation.SORT, start);
+        }
+        return sortedView;
+    }
+
+}
@@ -0,0 +1,93 @@
+package bankingsoftware;
+
+/**
+ * OperationMetrics class that counts one kind of database operation and
+ * keeps a histogram of its latencies, see DatabaseMetrics
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    private final Histogram latencies = new Histogram();
+
+    /**
+     * Creates metrics with no operations counted
+     */
+    OperationMetrics() {
+    }
+
+    /**
+     * Counts an operation
+     *
+     * @param nanos Latency of the operation in nanoseconds
+     */
+    void record(long nanos) {
+        latencies.record(nanos);
+    }
+
+    /**
+     * Getter method to get the number of operations
+     *
+     * @return Number of operations
+     */
+    @Override
+    public long getCount() {
+        return latencies.count();
+    }
+
+    /**
+     * Getter method to get the mean latency
+     *
+     * @return Mean latency in nanoseconds
+     */
+    @Override
+    public double getMeanNanos() {
+        return latencies.mean();
+    }
+
+    /**
+     * Getter method to get the median latency
+     *
+     * @return 50th percentile latency in nanoseconds
+     */
+    @Override
+    public long getP50Nanos() {
+        return latencies.percentile(50);
+    }
+
+    /**
+     * Getter method to get the latency that 99% of operations did not exceed
+     *
+     * @return 99th percentile latency in nanoseconds
+     */
+    @Override
+    public long getP99Nanos() {
+        return latencies.percentile(99);
+    }
+
+    /**
+     * Getter method to get the latency that 99.9% of operations did not exceed
+     *
+     * @return 99.9th percentile latency in nanoseconds
+     */
+    @Override
+    public long getP999Nanos() {
+        return latencies.percentile(99.9);
+    }
+
+    /**
+     * Getter method to get the longest latency
+     *
+     * @return Longest latency in nanoseconds
+     */
+    @Override
+    public long getMaxNanos() {
+        return latencies.max();
+    }
+
+    /**
+     * Clears the count and histogram
+     */
+    void reset() {
+        latencies.reset();
+    }
+}
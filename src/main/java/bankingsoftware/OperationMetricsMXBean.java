@@ -0,0 +1,51 @@
+package bankingsoftware;
+
+/**
+ * Management interface of the metrics of one kind of database operation,
+ * for JMX clients such as JConsole. Latencies are in nanoseconds.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public interface OperationMetricsMXBean {
+    /**
+     * Getter method to get the number of operations
+     *
+     * @return Number of operations
+     */
+    long getCount();
+
+    /**
+     * Getter method to get the mean latency
+     *
+     * @return Mean latency in nanoseconds
+     */
+    double getMeanNanos();
+
+    /**
+     * Getter method to get the median latency
+     *
+     * @return 50th percentile latency in nanoseconds
+     */
+    long getP50Nanos();
+
+    /**
+     * Getter method to get the latency that 99% of operations did not exceed
+     *
+     * @return 99th percentile latency in nanoseconds
+     */
+    long getP99Nanos();
+
+    /**
+     * Getter method to get the latency that 99.9% of operations did not exceed
+     *
+     * @return 99.9th percentile latency in nanoseconds
+     */
+    long getP999Nanos();
+
+    /**
+     * Getter method to get the longest latency
+     *
+     * @return Longest latency in nanoseconds
+     */
+    long getMaxNanos();
+}
@@ -6,9 +6,12 @@ package bankingsoftware;
  * @author Frances Cortuna
  */
 public class Profile implements Comparable<Profile> {
-    private String fname;
-    private String lname;
-    private Date dob;
+    private final String fname;
+    private final String lname;
+    private final Date dob;
+    private final int hash;
+    private final long sortKey;
+    private final long nextSortKey;
 
     /**
      * Parameterized constructor that initializes a Profile object with first name,
@@ -22,6 +25,11 @@ public class Profile implements Comparable<Profile> {
         this.fname = fname;
         this.lname = lname;
         this.dob = dob;
+        int result = foldedHash(fname);
+        result = 31 * result + foldedHash(lname);
+        hash = 31 * result + dob.hashCode();
+        sortKey = AccountSorter.key(0, lname, fname, dob.pack(), 0);
+        nextSortKey = AccountSorter.key(0, lname, fname, dob.pack(), 1);
     }
 
     /**
@@ -77,8 +85,29 @@ public class Profile implements Comparable<Profile> {
         return dob;
     }
 
+    /**
+     * Returns a sort key of the profile, see AccountSorter.key. The keys of
+     * the first two levels are computed when the profile is created.
+     *
+     * @param level Level of the key
+     * @return Sort key of the profile for type rank 0
+     */
+    long sortKey(int level) {
+        if (level == 0) {
+            return sortKey;
+        } else if (level == 1) {
+            return nextSortKey;
+        }
+        return AccountSorter.key(0, lname, fname, dob.pack(), level);
+    }
+
     /**
      * Checks if two Profile objects are equal.
+     * Canonical profiles from a ProfileRegistry are equal only to themselves,
+     * and profiles with different hash codes are not equal, so names are
+     * only compared for profiles that are very likely equal. The hash folds
+     * case the same way equalsIgnoreCase does, see foldedHash, so the hash
+     * check never rejects names that differ only in case.
      * 
      * @param object Profile being compared
      * @return boolean whether or not two profiles are equal
@@ -94,11 +123,37 @@ public class Profile implements Comparable<Profile> {
         }
 
         Profile other = (Profile) object;
-        String thisfname = fname.substring(0, 1).toUpperCase() + fname.substring(1).toLowerCase();
-        String thislname = lname.substring(0, 1).toUpperCase() + lname.substring(1).toLowerCase();
-        String otherFname = other.getFname().substring(0, 1).toUpperCase() + fname.substring(1).toLowerCase();
-        String otherLname = other.getLname().substring(0, 1).toUpperCase() + lname.substring(1).toLowerCase();
+        return hash == other.hash && fname.equalsIgnoreCase(other.getFname()) && lname.equalsIgnoreCase(other.getLname())
+                && dob.equals(other.getDOB());
+    }
+
+    /**
+     * Returns a hash code consistent with equals(), where names are compared ignoring case.
+     * The hash is computed once, when the profile is created.
+     *
+     * @return Hash code of the profile
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
 
-        return thisfname.equals(otherFname) && thislname.equals(otherLname) && dob.equals(other.getDOB());
+    /**
+     * Returns the hash of a name with each code point folded the way
+     * String.equalsIgnoreCase compares it: to upper case, then to lower case.
+     * Unlike String.toLowerCase this does not depend on the default locale,
+     * e.g. "I" and "i" hash the same with a Turkish locale.
+     *
+     * @param name Name to hash
+     * @return Hash of the name, equal for names that are equal ignoring case
+     */
+    private static int foldedHash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); ) {
+            int c = name.codePointAt(i);
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(c));
+            i += Character.charCount(c);
+        }
+        return hash;
     }
 }
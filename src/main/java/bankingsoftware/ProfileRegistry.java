@@ -0,0 +1,66 @@
+package bankingsoftware;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ProfileRegistry class that keeps one canonical Profile per account holder.
+ * <p>
+ * Profiles that are equal, i.e. have the same names ignoring case and the
+ * same date of birth, are interned to the first one registered. A holder with
+ * several accounts then shares one Profile, and comparing two canonical
+ * profiles is an identity check. The registry is safe to use from several
+ * threads.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class ProfileRegistry {
+    private final ConcurrentHashMap<Profile, Profile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the canonical profile of a holder, registering the given
+     * profile as canonical if the holder has none yet
+     *
+     * @param profile Profile of the holder
+     * @return Canonical profile equal to the given one
+     */
+    public Profile intern(Profile profile) {
+        Profile canonical = profiles.putIfAbsent(profile, profile);
+        return canonical == null ? profile : canonical;
+    }
+
+    /**
+     * Returns the canonical profile of a holder without registering it
+     *
+     * @param profile Profile of the holder
+     * @return Canonical profile equal to the given one, or the given profile if the holder is not registered
+     */
+    public Profile canonical(Profile profile) {
+        Profile canonical = profiles.get(profile);
+        return canonical == null ? profile : canonical;
+    }
+
+    /**
+     * Getter method to get the number of registered holders
+     *
+     * @return Number of canonical profiles
+     */
+    public int size() {
+        return profiles.size();
+    }
+
+    /**
+     * Removes the canonical profile of a holder, e.g. once the holder has no accounts left
+     *
+     * @param profile Profile of the holder
+     */
+    void remove(Profile profile) {
+        profiles.remove(profile);
+    }
+
+    /**
+     * Removes every canonical profile
+     */
+    void clear() {
+        profiles.clear();
+    }
+}
@@ -7,9 +7,10 @@ package bankingsoftware;
  * @author Jia Wern Chong
  */
 public class Savings extends Account{
-    private final static double INTEREST_RATE_NON_LOYAL = 0.04;
-    private final static double INTEREST_RATE_LOYAL = 0.0425;
-    private final static double MONTHLY_FEE = 25.0;
+    final static long INTEREST_RATE_NON_LOYAL = 400; // 4% in basis points
+    final static long INTEREST_RATE_LOYAL = 425; // 4.25% in basis points
+    final static long MONTHLY_FEE = 2500; // $25.00 in cents
+    final static long FEE_WAIVED_BALANCE = 50000; // $500.00 in cents
     protected boolean isLoyal;
 
     /**
@@ -36,53 +37,45 @@ public class Savings extends Account{
     }
 
     /**
-     * Applies monthly interest to account balance
+     * Computes monthly interest on a balance based on loyalty
      *
-     * @return New balance with accrued monthly interest
+     * @param balance Balance in cents
+     * @return Monthly interest in cents
      */
-    public double monthlyInterest() {
+    @Override
+    long interestCents(long balance) {
         if (isLoyal) {
-            return balance += getInterest();
+            return Money.monthlyInterest(balance, INTEREST_RATE_LOYAL);
         } else {
-            return balance += getInterest();
+            return Money.monthlyInterest(balance, INTEREST_RATE_NON_LOYAL);
         }
     }
+
     /**
-     * Charges monthly fee if balance is less than 500.0
+     * Computes monthly fee, which is charged if balance is less than 500.0
      *
-     * @return New balance with monthly fee taken out of account (if applicable)
+     * @param balance Balance in cents
+     * @return Monthly fee in cents
      */
-    public double monthlyFee() {
-        if (balance >= 500.0) {
-            return balance;
-        } else {
-            return balance -= MONTHLY_FEE;
-        }
+    @Override
+    long feeCents(long balance) {
+        return feeCentsFor(balance);
     }
 
     /**
-     * Gets monthly interest of account
-     * @return monthly interest
+     * Computes the Savings monthly fee for a balance, which is charged if it is less than 500.0
+     *
+     * @param balance Balance in cents
+     * @return Monthly fee in cents
      */
-    public double getInterest() {
-        if (isLoyal) {
-            return (INTEREST_RATE_LOYAL * balance) / 12;
+    static long feeCentsFor(long balance) {
+        if (balance >= FEE_WAIVED_BALANCE) {
+            return 0;
         } else {
-            return (INTEREST_RATE_NON_LOYAL * balance) / 12;
+            return MONTHLY_FEE;
         }
     }
 
-    /**
-     * Gets monthly fee of account
-     * @return monthly fee
-     */
-    public double getMonthlyFee() {
-        if(balance >= 500.0) {
-            return 0.0;
-        }
-        return MONTHLY_FEE;
-    }
-
     /**
      * Gets loyalty status of account
      * @return True or false
@@ -110,22 +103,16 @@ public class Savings extends Account{
     }
 
     /**
-     * Returns a string for the account with all its information
-     * 
-     * @return String to represent the account
-     */
-    public String toString() {
-        String balanceString = isLoyal ? String.format("Balance $%,.2f::is loyal", balance) : String.format("Balance $%,.2f", balance);
-        return String.format("Savings::%s %s %s::%s", holder.getFname(), holder.getLname(), holder.getDOB().toString(), balanceString);
-    }
-
-    /**
-     * Returns a string for the account with all its information
+     * Appends the account with all its information
      * 
-     * @return String to represent the account
+     * @param output StringBuilder the account is appended to
      */
-    public String toStringFeesInterest() {
-        return toString() + String.format("::fee $%,.2f::monthly interest $%,.2f", getMonthlyFee(), getInterest());
+    public void appendTo(StringBuilder output) {
+        output.append("Savings::");
+        appendHolderBalance(output);
+        if (isLoyal) {
+            output.append("::is loyal");
+        }
     }
 
 }
@@ -0,0 +1,204 @@
+package bankingsoftware;
+
+import java.util.Arrays;
+
+/**
+ * TransactionBatch class that holds a list of deposits and withdrawals to be
+ * applied to an AccountDatabase in one pass, see AccountDatabase.apply.
+ * Each transaction is kept as a holder, an account type, an operation and an
+ * amount in parallel arrays, so adding a transaction does not create an object.
+ * A batch can be cleared and reused, e.g. for each block of an ACH file.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class TransactionBatch {
+    public static final byte APPLIED = 0;
+    public static final byte INSUFFICIENT_FUNDS = 1;
+    public static final byte NOT_FOUND = 2;
+
+    static final byte DEPOSIT = 0;
+    static final byte WITHDRAW = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Profile[] holders;
+    private byte[] types;
+    private byte[] ops;
+    private long[] amounts;
+    private long[] order;
+    private int size;
+
+    /**
+     * Creates an empty batch
+     */
+    public TransactionBatch() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty batch with room for a known number of transactions
+     *
+     * @param initialCapacity Number of transactions to reserve room for
+     */
+    public TransactionBatch(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity cannot be negative: " + initialCapacity);
+        }
+        int capacity = Math.max(initialCapacity, 1);
+        holders = new Profile[capacity];
+        types = new byte[capacity];
+        ops = new byte[capacity];
+        amounts = new long[capacity];
+    }
+
+    /**
+     * Adds a deposit into the account of the same type and holder as the given account
+     *
+     * @param account Account to deposit into, only its type and holder are used
+     * @param cents   Amount in cents
+     */
+    public void deposit(Account account, long cents) {
+        add(account.holder, AccountDatabase.typeOrder(account), DEPOSIT, cents);
+    }
+
+    /**
+     * Adds a withdrawal from the account of the same type and holder as the given account
+     *
+     * @param account Account to withdraw from, only its type and holder are used
+     * @param cents   Amount in cents
+     */
+    public void withdraw(Account account, long cents) {
+        add(account.holder, AccountDatabase.typeOrder(account), WITHDRAW, cents);
+    }
+
+    /**
+     * Adds a deposit into a holder's account of a type
+     *
+     * @param holder             Profile of the account holder
+     * @param accountTypeInitial Initial of the account type, e.g. "CC"
+     * @param cents              Amount in cents
+     */
+    public void deposit(Profile holder, String accountTypeInitial, long cents) {
+        add(holder, typeOf(accountTypeInitial), DEPOSIT, cents);
+    }
+
+    /**
+     * Adds a withdrawal from a holder's account of a type
+     *
+     * @param holder             Profile of the account holder
+     * @param accountTypeInitial Initial of the account type, e.g. "CC"
+     * @param cents              Amount in cents
+     */
+    public void withdraw(Profile holder, String accountTypeInitial, long cents) {
+        add(holder, typeOf(accountTypeInitial), WITHDRAW, cents);
+    }
+
+    /**
+     * Returns the type rank of an account type initial
+     *
+     * @throws IllegalArgumentException If the initial is not C, CC, S or MM
+     */
+    private static int typeOf(String accountTypeInitial) {
+        int type = AccountLoader.typeOf(accountTypeInitial, 0, accountTypeInitial.length());
+        if (type < 0) {
+            throw new IllegalArgumentException("Invalid account type: " + accountTypeInitial);
+        }
+        return type;
+    }
+
+    /**
+     * Adds a transaction, growing the arrays when they are full
+     *
+     * @throws IllegalArgumentException If the amount is not positive
+     */
+    private void add(Profile holder, int type, byte op, long cents) {
+        if (cents <= 0) {
+            throw new IllegalArgumentException("Amount cannot be 0 or negative: " + cents);
+        }
+        if (size == holders.length) {
+            int capacity = size + (size >> 1) + 1;
+            holders = Arrays.copyOf(holders, capacity);
+            types = Arrays.copyOf(types, capacity);
+            ops = Arrays.copyOf(ops, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+        holders[size] = holder;
+        types[size] = (byte) type;
+        ops[size] = op;
+        amounts[size] = cents;
+        size++;
+    }
+
+    /**
+     * Removes all transactions, keeping the arrays for reuse
+     */
+    public void clear() {
+        Arrays.fill(holders, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Getter method to get number of transactions
+     *
+     * @return Number of transactions in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the holder of a transaction
+     */
+    Profile holder(int transaction) {
+        return holders[transaction];
+    }
+
+    /**
+     * Returns the account type rank of a transaction
+     */
+    int type(int transaction) {
+        return types[transaction];
+    }
+
+    /**
+     * Returns the operation of a transaction, DEPOSIT or WITHDRAW
+     */
+    byte op(int transaction) {
+        return ops[transaction];
+    }
+
+    /**
+     * Returns the amount of a transaction in cents
+     */
+    long amount(int transaction) {
+        return amounts[transaction];
+    }
+
+    /**
+     * Checks if two transactions are on the same account
+     */
+    boolean sameAccount(int transaction, int other) {
+        return types[transaction] == types[other] && holders[transaction].equals(holders[other]);
+    }
+
+    /**
+     * Returns the transactions grouped by account. Each entry holds a hash of
+     * the account in its high 32 bits and the transaction's position in its
+     * low 32 bits, so sorting the entries brings the transactions on one
+     * account together while keeping them in the order they were added.
+     * The array is reused by later calls.
+     *
+     * @return Array whose first size() entries are the sorted transactions
+     */
+    long[] groupedOrder() {
+        if (order == null || order.length < size) {
+            order = new long[holders.length];
+        }
+        for (int i = 0; i < size; i++) {
+            long hash = 31 * holders[i].hashCode() + types[i];
+            order[i] = (hash << 32) | i;
+        }
+        Arrays.sort(order, 0, size);
+        return order;
+    }
+}
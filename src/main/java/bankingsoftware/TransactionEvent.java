@@ -0,0 +1,77 @@
+package bankingsoftware;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * TransactionEvent class that records an open, close, deposit or withdrawal
+ * in Java Flight Recorder, with the account type and a bucket of the amount.
+ * <p>
+ * The event is created and begun before the operation and committed after
+ * it with commit(Operation, Account). When no recording is running,
+ * shouldCommit is false and the fields are never set, so the event only
+ * costs the checks. A busy server runs many transactions a second, so by
+ * default only transactions slower than 10 us are recorded, without a stack
+ * trace, the way the JDK records file and socket reads. A threshold of 0 in
+ * the recording settings records every transaction.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+@Name("bankingsoftware.Transaction")
+@Label("Transaction")
+@Category({"Banking", "Account Database"})
+@Description("Open, close, deposit or withdrawal on an account database")
+@StackTrace(false)
+@Threshold("10 us")
+class TransactionEvent extends jdk.jfr.Event {
+    private static final long CENTS_PER_DOLLAR = 100;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Account Type")
+    @Description("C, CC, S or MM")
+    String accountType;
+
+    @Label("Amount Bucket")
+    @Description("Amount in dollars rounded down to a power of ten, e.g. 100 for $100 to $999.99, or 0 below $1")
+    long amountBucket;
+
+    /**
+     * Commits the event, if it is recorded, after setting its fields
+     *
+     * @param operation Kind of operation
+     * @param account   Account given to the operation, with the amount as its balance
+     */
+    void commit(DatabaseMetrics.Operation operation, Account account) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation.displayName();
+            accountType = account.getAccountTypeInitial();
+            amountBucket = amountBucket(account.balance);
+            commit();
+        }
+    }
+
+    /**
+     * Returns the bucket of an amount
+     *
+     * @param cents Amount in cents
+     * @return Largest power of ten dollars not above the amount, or 0 below $1
+     */
+    static long amountBucket(long cents) {
+        long dollars = cents / CENTS_PER_DOLLAR;
+        if (dollars < 1) {
+            return 0;
+        }
+        long bucket = 1;
+        while (bucket <= dollars / 10) {
+            bucket *= 10;
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,672 @@
+package bankingsoftware;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * TransactionJournal class that is an append-only write-ahead log of the
+ * changes made to an AccountDatabase, so the database can be rebuilt when the
+ * program starts again.
+ * <p>
+ * Each record is written as its length, a CRC32C checksum and the record
+ * itself. Records are appended to a buffer in memory and written to the file
+ * with group commit: the first thread that waits for its record to be durable
+ * writes and forces everything appended so far, while the threads that
+ * arrive during the force wait and share the next one. A record that was
+ * only partly written before a crash fails its checksum and is dropped when
+ * the journal is replayed.
+ * <p>
+ * The journal is kept in a directory as numbered segment files. Once a
+ * segment has grown past the segment size, the database takes a snapshot,
+ * see AccountSnapshot: a new segment is started and the accounts as of that
+ * point are written to a snapshot file in the background. When the snapshot
+ * is on disk, the older segments and snapshots are deleted, so startup only
+ * loads the latest snapshot and replays the segments written after it.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class TransactionJournal implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    private static final byte OPEN = 1;
+    private static final byte CLOSE = 2;
+    private static final byte DEPOSIT = 3;
+    private static final byte WITHDRAW = 4;
+    private static final byte MONTH_END = 5;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 16;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int NO_CAMPUS = -1;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final CRC32C checksum = new CRC32C();
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private FileChannel channel;
+    private long segment;
+    private long segmentStart;
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_BYTES);
+    private long appended;
+    private long durable;
+    private boolean flushing;
+    private IOException failure;
+    private int recordStart;
+
+    /**
+     * Creates a journal that appends to an open segment
+     *
+     * @param directory    Directory of the journal
+     * @param segmentBytes Size after which a snapshot is taken and a new segment is started
+     * @param channel      Channel of the last segment, positioned at its end
+     * @param segment      Number of the last segment
+     * @param length       Number of valid bytes in the last segment
+     */
+    private TransactionJournal(Path directory, long segmentBytes, FileChannel channel, long segment, long length) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.channel = channel;
+        this.segment = segment;
+        this.appended = length;
+        this.durable = length;
+    }
+
+    /**
+     * Opens the journal in a directory with the default segment size, see open(Path, AccountDatabase, long)
+     *
+     * @param directory Journal directory, created if it does not exist
+     * @param database  Database to rebuild, normally empty
+     * @return The open journal
+     * @throws IOException If the journal cannot be read or written, or does not match the database
+     */
+    public static TransactionJournal open(Path directory, AccountDatabase database) throws IOException {
+        return open(directory, database, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens the journal in a directory, creating the directory if it does not exist.
+     * The latest snapshot is loaded into the database, the segments written
+     * after it are replayed, a partly written record at the end of the last
+     * segment is cut off, and the journal is attached to the database so
+     * that its changes from now on are recorded. Replay starts with the
+     * segment started with the snapshot, or segment 0 if there is none, and
+     * fails if any segment from there on is missing. If the journal cannot be
+     * read, the database is cleared, so a partly rebuilt database is not used.
+     *
+     * @param directory    Journal directory, created if it does not exist
+     * @param database     Database to rebuild, normally empty
+     * @param segmentBytes Size after which a snapshot is taken and a new segment is started
+     * @return The open journal
+     * @throws IOException If the journal cannot be read or written, or does not match the database
+     */
+    public static TransactionJournal open(Path directory, AccountDatabase database, long segmentBytes)
+            throws IOException {
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        FileChannel channel;
+        long last;
+        long length;
+        try {
+            long[] snapshots = numbered(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            long first = 0;
+            if (snapshots.length > 0) {
+                first = snapshots[snapshots.length - 1];
+                AccountSnapshot.load(snapshotFile(directory, first), database);
+            }
+
+            long[] segments = numbered(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            long expected = first;
+            last = first;
+            length = 0;
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i] < first) {
+                    continue;
+                } else if (segments[i] != expected) {
+                    throw new IOException("Journal segment " + expected + " is missing.");
+                }
+                last = segments[i];
+                expected = last + 1;
+                Path file = segmentFile(directory, last);
+                length = replay(file, database);
+                if (i < segments.length - 1 && length != Files.size(file)) {
+                    throw new IOException("Journal segment " + last + " is damaged.");
+                }
+            }
+            if (snapshots.length > 0 && expected == first) {
+                throw new IOException("Journal segment " + first + " is missing.");
+            }
+
+            channel = FileChannel.open(segmentFile(directory, last), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                channel.truncate(length);
+                channel.position(length);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            database.clear();
+            throw e;
+        }
+        TransactionJournal journal = new TransactionJournal(directory, segmentBytes, channel, last, length);
+        database.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Returns the numbers of the files in a directory named prefix + number + suffix, in increasing order
+     */
+    private static long[] numbered(Path directory, String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> name.substring(prefix.length(), name.length() - suffix.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .mapToLong(Long::parseLong)
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    /**
+     * Returns the file of a journal segment
+     */
+    private static Path segmentFile(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Returns the file of a snapshot taken when a segment was started
+     */
+    private static Path snapshotFile(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * Replays the records of a journal segment into a database, stopping at the
+     * first record that is cut off or fails its checksum
+     *
+     * @param file     Journal segment
+     * @param database Database to apply the records to
+     * @return Number of bytes of valid records
+     * @throws IOException If the file cannot be read or a record does not match the database
+     */
+    static long replay(Path file, AccountDatabase database) throws IOException {
+        long valid = 0;
+        CRC32C crc = new CRC32C();
+        byte[] record = new byte[MAX_RECORD_BYTES];
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            while (true) {
+                int length;
+                int expected;
+                try {
+                    length = in.readInt();
+                    expected = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    in.readFully(record, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(record, 0, length);
+                if ((int) crc.getValue() != expected) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(record, 0, length), database);
+                valid += HEADER_BYTES + length;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Applies one record to a database
+     *
+     * @param record   Record without its length and checksum
+     * @param database Database to apply the record to
+     * @throws IOException If the record does not match the database
+     */
+    private static void apply(ByteBuffer record, AccountDatabase database) throws IOException {
+        byte kind = record.get();
+        if (kind == MONTH_END) {
+            database.printUpdatesBalances(Writer.nullWriter());
+            return;
+        }
+
+        int type = record.get();
+        Profile holder = new Profile(getString(record), getString(record), Date.unpack(record.getInt()));
+        boolean matches = switch (kind) {
+            case OPEN -> database.open(getAccount(record, type, holder));
+            case CLOSE -> database.close(AccountDatabase.key(type, holder));
+            case DEPOSIT -> {
+                Account key = AccountDatabase.key(type, holder);
+                key.balance = record.getLong();
+                boolean found = database.contains(key);
+                if (found) {
+                    database.deposit(key);
+                }
+                yield found;
+            }
+            case WITHDRAW -> {
+                Account key = AccountDatabase.key(type, holder);
+                key.balance = record.getLong();
+                yield database.contains(key) && database.withdraw(key);
+            }
+            default -> throw new IOException("Unknown journal record " + kind + ".");
+        };
+        if (!matches) {
+            throw new IOException("Journal record " + kind + " for " + holder.getFname() + " "
+                    + holder.getLname() + " does not match the database.");
+        }
+    }
+
+    /**
+     * Reads the state of an opened account from a record
+     */
+    private static Account getAccount(ByteBuffer record, int type, Profile holder) {
+        long balance = record.getLong();
+        int flag = record.get();
+        int withdrawals = record.getInt();
+        return restore(type, holder, balance, flag, withdrawals);
+    }
+
+    /**
+     * Creates an account from the state written by recordOpen or a snapshot
+     *
+     * @param type        Type rank of the account
+     * @param holder      Profile of the account holder
+     * @param balance     Balance in cents
+     * @param flag        Campus code or loyalty, see flagOf
+     * @param withdrawals Number of withdrawals of a Money Market account
+     * @return The account
+     */
+    static Account restore(int type, Profile holder, long balance, int flag, int withdrawals) {
+        Account account = switch (type) {
+            case AccountDatabase.CHECKING -> new Checking(holder, 0.0);
+            case AccountDatabase.COLLEGE_CHECKING -> new CollegeChecking(holder, 0.0, campusOf(flag));
+            case AccountDatabase.SAVINGS -> new Savings(holder, 0.0, flag == 1);
+            default -> new MoneyMarket(holder, 0.0, flag == 1, withdrawals);
+        };
+        account.balance = balance;
+        return account;
+    }
+
+    /**
+     * Returns the campus with a campus code, or null for NO_CAMPUS
+     */
+    private static Campus campusOf(int campusCode) {
+        for (Campus campus : Campus.values()) {
+            if (campus.getCampusCode() == campusCode) {
+                return campus;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a string written by putString
+     */
+    private static String getString(ByteBuffer record) {
+        int length = record.getShort() & 0xFFFF;
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    /**
+     * Returns the campus code of a College Checking account, or 1 for a
+     * loyal Savings or Money Market account and 0 otherwise
+     *
+     * @param account Account to encode
+     * @return Flag written with the account
+     */
+    static int flagOf(Account account) {
+        if (account instanceof CollegeChecking) {
+            Campus campus = ((CollegeChecking) account).getCampus();
+            return campus == null ? NO_CAMPUS : campus.getCampusCode();
+        } else if (account instanceof Savings) {
+            return ((Savings) account).isLoyal ? 1 : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of withdrawals of a Money Market account, or 0 for other accounts
+     *
+     * @param account Account to encode
+     * @return Withdrawals written with the account
+     */
+    static int withdrawalsOf(Account account) {
+        return account instanceof MoneyMarket ? ((MoneyMarket) account).getWithdrawal() : 0;
+    }
+
+    /**
+     * Records that an account was opened, with its balance and status
+     *
+     * @param account Account that was opened
+     * @return Position the journal must be durable up to for the record to be durable
+     */
+    long recordOpen(Account account) {
+        int flag = flagOf(account);
+        int withdrawals = withdrawalsOf(account);
+        byte[] fname = account.holder.getFname().getBytes(StandardCharsets.UTF_8);
+        byte[] lname = account.holder.getLname().getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            ByteBuffer record = begin(OPEN, account, fname, lname, Long.BYTES + 1 + Integer.BYTES);
+            record.putLong(account.balance).put((byte) flag).putInt(withdrawals);
+            return end(record);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that an account was closed
+     *
+     * @param account Account that was closed
+     * @return Position the journal must be durable up to for the record to be durable
+     */
+    long recordClose(Account account) {
+        return recordAccount(CLOSE, account, 0);
+    }
+
+    /**
+     * Records a deposit
+     *
+     * @param account Account deposited into
+     * @param cents   Amount in cents
+     * @return Position the journal must be durable up to for the record to be durable
+     */
+    long recordDeposit(Account account, long cents) {
+        return recordAccount(DEPOSIT, account, cents);
+    }
+
+    /**
+     * Records a withdrawal that was applied
+     *
+     * @param account Account withdrawn from
+     * @param cents   Amount in cents
+     * @return Position the journal must be durable up to for the record to be durable
+     */
+    long recordWithdraw(Account account, long cents) {
+        return recordAccount(WITHDRAW, account, cents);
+    }
+
+    /**
+     * Records that monthly fees and interests were applied to every account
+     *
+     * @return Position the journal must be durable up to for the record to be durable
+     */
+    long recordMonthEnd() {
+        lock.lock();
+        try {
+            ByteBuffer record = reserve(1);
+            record.put(MONTH_END);
+            return end(record);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a close, deposit or withdrawal
+     */
+    private long recordAccount(byte kind, Account account, long cents) {
+        byte[] fname = account.holder.getFname().getBytes(StandardCharsets.UTF_8);
+        byte[] lname = account.holder.getLname().getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            ByteBuffer record = begin(kind, account, fname, lname, kind == CLOSE ? 0 : Long.BYTES);
+            if (kind != CLOSE) {
+                record.putLong(cents);
+            }
+            return end(record);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves room for a record about an account and writes the fields
+     * shared by all such records: kind, account type, holder and date of birth
+     */
+    private ByteBuffer begin(byte kind, Account account, byte[] fname, byte[] lname, int extraBytes) {
+        ByteBuffer record = reserve(2 + 2 + fname.length + 2 + lname.length + Integer.BYTES + extraBytes);
+        record.put(kind).put((byte) AccountDatabase.typeOrder(account));
+        record.putShort((short) fname.length).put(fname);
+        record.putShort((short) lname.length).put(lname);
+        return record.putInt(account.holder.getDOB().pack());
+    }
+
+    /**
+     * Makes room in the pending buffer for a record of the given length and
+     * skips the header, which end fills in
+     */
+    private ByteBuffer reserve(int length) {
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Journal record is too long: " + length + " bytes");
+        }
+        if (pending.remaining() < HEADER_BYTES + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * pending.capacity(),
+                    pending.position() + HEADER_BYTES + length));
+            pending.flip();
+            pending = grown.put(pending);
+        }
+        recordStart = pending.position();
+        return pending.position(recordStart + HEADER_BYTES);
+    }
+
+    /**
+     * Fills in the length and checksum of the record that was just written
+     * into the pending buffer
+     *
+     * @return Position of the end of the record in the journal
+     */
+    private long end(ByteBuffer record) {
+        int length = record.position() - recordStart - HEADER_BYTES;
+        checksum.reset();
+        checksum.update(record.array(), recordStart + HEADER_BYTES, length);
+        record.putInt(recordStart, length).putInt(recordStart + Integer.BYTES, (int) checksum.getValue());
+        appended += HEADER_BYTES + length;
+        return appended;
+    }
+
+    /**
+     * Waits until every record up to a position is durable on disk.
+     * If no other thread is writing the journal, this thread writes and forces
+     * all records appended so far, including those of other threads.
+     *
+     * @param position Position returned when the record was appended
+     * @throws IOException If the journal could not be written
+     */
+    public void awaitDurable(long position) throws IOException {
+        lock.lock();
+        try {
+            while (durable < position) {
+                if (failure != null) {
+                    throw new IOException("Journal could not be written.", failure);
+                } else if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+
+                flushing = true;
+                ByteBuffer batch = pending;
+                pending = spare;
+                long target = appended;
+                FileChannel file = channel;
+                lock.unlock();
+                IOException error = null;
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        file.write(batch);
+                    }
+                    file.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                spare = batch.clear();
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durable = target;
+                }
+                flushed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if the current segment has grown past the segment size and no
+     * snapshot is being taken. If so, the caller must take a snapshot and
+     * call snapshotDone when it is written or has failed.
+     *
+     * @return True if the caller should take a snapshot, false otherwise
+     */
+    boolean claimSnapshot() {
+        lock.lock();
+        try {
+            if (appended - segmentStart < segmentBytes) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return snapshotting.compareAndSet(false, true);
+    }
+
+    /**
+     * Lets the next snapshot be claimed
+     */
+    void snapshotDone() {
+        snapshotting.set(false);
+    }
+
+    /**
+     * Writes and forces the records appended so far and starts a new segment.
+     * The caller must make sure no records are appended while the segment is
+     * rolled that belong before the snapshot taken with it.
+     *
+     * @return Number of the new segment
+     * @throws IOException If the journal could not be written
+     */
+    long roll() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new IOException("Journal could not be written.", failure);
+            }
+            pending.flip();
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            pending.clear();
+            channel.force(false);
+            durable = appended;
+            flushed.signalAll();
+
+            FileChannel next = FileChannel.open(segmentFile(directory, segment + 1), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            channel.close();
+            channel = next;
+            segment++;
+            segmentStart = appended;
+            return segment;
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot to the journal directory, then deletes the segments
+     * and snapshots it replaces
+     *
+     * @param snapshot Snapshot taken when its segment was started
+     * @return File the snapshot was written to
+     * @throws IOException If the snapshot could not be written
+     */
+    Path writeSnapshot(AccountSnapshot snapshot) throws IOException {
+        long number = snapshot.getSegment();
+        Path file = snapshotFile(directory, number);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        snapshot.write(temporary);
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (long older : numbered(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < number) {
+                Files.deleteIfExists(snapshotFile(directory, older));
+            }
+        }
+        for (long older : numbered(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (older < number) {
+                Files.deleteIfExists(segmentFile(directory, older));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes and forces every record appended so far, then closes the file
+     *
+     * @throws IOException If the journal could not be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        long end;
+        lock.lock();
+        try {
+            end = appended;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitDurable(end);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package bankingsoftware;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.StringTokenizer;
+import javax.management.JMException;
+
+/**
+ * TransactionServer class that runs transactions against an account database
+ * without the GUI, over a local TCP socket or standard input.
+ * Each line is one command, with fields separated by whitespace:
+ * <pre>
+ * O  type first last mm/dd/yyyy amount [campus code | loyal code]   open an account
+ * C  type first last mm/dd/yyyy                                      close an account
+ * D  type first last mm/dd/yyyy amount                               deposit
+ * W  type first last mm/dd/yyyy amount                               withdraw
+ * P                                                                  print accounts
+ * PI                                                                 print fees and interests
+ * UB                                                                 apply fees and interests
+ * STATS                                                              print operation metrics
+ * Q                                                                  quit
+ * </pre>
+ * where type is C, CC, S or MM. The replies are the messages the GUI shows.
+ * Every connection is served on its own virtual thread, so thousands of
+ * simulated tellers can share one database.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+public class TransactionServer {
+    public static final int DEFAULT_PORT = 7070;
+
+    private final ConcurrentAccountDatabase database;
+
+    /**
+     * Creates a server for a database that is shared by all connections
+     *
+     * @param database Database the transactions are run against
+     */
+    public TransactionServer(ConcurrentAccountDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Accepts connections on a port of the loopback address until the server
+     * socket is closed or the thread is interrupted, serving each connection
+     * on a new virtual thread
+     *
+     * @param port Port to listen on
+     * @throws IOException If the port cannot be opened
+     */
+    public void listen(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            Thread.Builder tellers = Thread.ofVirtual().name("teller-", 0);
+            while (!Thread.currentThread().isInterrupted()) {
+                Socket socket = server.accept();
+                tellers.start(() -> serve(socket));
+            }
+        }
+    }
+
+    /**
+     * Serves one connection until the client sends Q or disconnects
+     *
+     * @param socket Connection to serve
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            serve(in, out);
+        } catch (IOException e) {
+            // the client disconnected; its transactions so far are kept
+        }
+    }
+
+    /**
+     * Runs the commands read from a reader until Q or the end of input,
+     * writing each reply and flushing it before the next command is read.
+     * A command that fails replies with the reason instead of ending the input.
+     *
+     * @param in  Commands, one per line
+     * @param out Sink the replies are written to
+     * @throws IOException If reading or writing fails
+     */
+    public void serve(BufferedReader in, Writer out) throws IOException {
+        AccountLoader loader = new AccountLoader(database);
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            StringTokenizer tokens = new StringTokenizer(line);
+            if (!tokens.hasMoreTokens()) {
+                continue;
+            }
+            String command = tokens.nextToken();
+            if (command.equals("Q")) {
+                out.write("Transaction Manager is terminated.\n");
+                out.flush();
+                return;
+            }
+            reply.setLength(0);
+            try {
+                execute(command, tokens, loader, out, reply);
+            } catch (RuntimeException e) { // one bad command must not end the connection
+                reply.setLength(0);
+                reply.append(command).append(" could not be run: ").append(e.getMessage()).append('\n');
+            }
+            out.append(reply);
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs a single command
+     *
+     * @param command Command code
+     * @param tokens  Remaining fields of the command
+     * @param loader  Loader of the connection, used to parse accounts
+     * @param out     Sink reports are written to
+     * @param reply   StringBuilder the reply is appended to
+     * @throws IOException If writing a report fails
+     */
+    private void execute(String command, StringTokenizer tokens, AccountLoader loader, Writer out,
+                         StringBuilder reply) throws IOException {
+        switch (command) {
+            case "O" -> open(tokens, loader, reply);
+            case "C" -> close(tokens, reply);
+            case "D", "W" -> transact(command.equals("D"), tokens, reply);
+            case "P" -> {
+                if (database.getNumAcct() == 0) {
+                    reply.append("Account Database is empty!\n");
+                    return;
+                }
+                out.write("\n*Accounts sorted by account type and profile.\n");
+                database.printSorted(out);
+                reply.append("*end of list.\n\n");
+            }
+            case "PI" -> {
+                if (database.getNumAcct() == 0) {
+                    reply.append("Account Database is empty!\n");
+                    return;
+                }
+                out.write("\n*list of accounts with fee and monthly interest.\n");
+                database.printFeesAndInterests(out);
+                reply.append("*end of list.\n");
+            }
+            case "UB" -> {
+                if (database.getNumAcct() == 0) {
+                    reply.append("Account Database is empty!\n");
+                    return;
+                }
+                out.write("\n*list of accounts with fees and interests applied.\n");
+                database.printUpdatesBalances(out);
+                reply.append("*end of list.\n");
+            }
+            case "STATS" -> {
+                DatabaseMetrics metrics = database.getMetrics();
+                if (metrics == null) {
+                    reply.append("Metrics are not enabled.\n");
+                    return;
+                }
+                reply.append(metrics.dump());
+            }
+            default -> reply.append(command).append(" is an invalid command!\n");
+        }
+    }
+
+    /**
+     * Opens an account from the fields "type first last dob amount [code]",
+     * parsed the same way as a line of an account file
+     */
+    private void open(StringTokenizer tokens, AccountLoader loader, StringBuilder reply) {
+        StringBuilder fields = new StringBuilder();
+        while (tokens.hasMoreTokens()) {
+            if (fields.length() > 0) {
+                fields.append(',');
+            }
+            fields.append(tokens.nextToken());
+        }
+        LoadReport report = new LoadReport();
+        Account account = loader.parse(fields.toString(), 1, new Date(), report);
+        if (account == null) {
+            reply.append(report.getLastReason()).append('\n');
+        } else if (loader.open(account)) {
+            appendAccount(reply, account.getProfile(), account.getAccountTypeInitial()).append(" opened.\n");
+        } else {
+            appendAccount(reply, account.getProfile(), account.getAccountTypeInitial())
+                    .append(" is already in the database.\n");
+        }
+    }
+
+    /**
+     * Closes an account from the fields "type first last dob"
+     */
+    private void close(StringTokenizer tokens, StringBuilder reply) {
+        Account key = parseKey(tokens, reply);
+        if (key == null) {
+            return;
+        }
+        appendAccount(reply, key.getProfile(), key.getAccountTypeInitial());
+        if (database.close(key)) {
+            reply.append(" has been closed.\n");
+        } else {
+            reply.append(" is not in the database.\n");
+        }
+    }
+
+    /**
+     * Deposits into or withdraws from an account, from the fields "type first last dob amount"
+     */
+    private void transact(boolean deposit, StringTokenizer tokens, StringBuilder reply) {
+        Account key = parseKey(tokens, reply);
+        if (key == null) {
+            return;
+        } else if (!tokens.hasMoreTokens()) {
+            reply.append("Missing data for processing a transaction.\n");
+            return;
+        }
+        String amount = tokens.nextToken();
+        try {
+            key.balance = Money.parseCents(amount, 0, amount.length());
+        } catch (NumberFormatException e) {
+            reply.append("Not a valid amount.\n");
+            return;
+        }
+        if (key.balance <= 0) {
+            reply.append(deposit ? "Deposit" : "Withdraw").append(" - amount cannot be 0 or negative.\n");
+            return;
+        }
+
+        int start = reply.length();
+        appendAccount(reply, key.getProfile(), key.getAccountTypeInitial());
+        try {
+            if (deposit) {
+                database.deposit(key);
+                reply.append(" Deposit - balance updated.\n");
+            } else if (database.withdraw(key)) {
+                reply.append(" Withdraw - balance updated.\n");
+            } else {
+                reply.append(" Withdraw - insufficient fund.\n");
+            }
+        } catch (IllegalArgumentException e) { // the account is not in the database
+            reply.setLength(start);
+            appendAccount(reply, key.getProfile(), key.getAccountTypeInitial()).append(" is not in the database.\n");
+        } catch (ArithmeticException e) { // the balance would overflow
+            reply.setLength(start);
+            reply.append("Deposit - amount is too large.\n");
+        }
+    }
+
+    /**
+     * Parses the fields "type first last dob" into an account with a zero balance
+     * that can be used to look up the account in the database
+     *
+     * @param tokens Fields of the command
+     * @param reply  StringBuilder the reason is appended to if the fields are invalid
+     * @return Account to look up, or null if the fields are invalid
+     */
+    private static Account parseKey(StringTokenizer tokens, StringBuilder reply) {
+        if (tokens.countTokens() < 4) {
+            reply.append("Missing data for processing a transaction.\n");
+            return null;
+        }
+        String type = tokens.nextToken();
+        String fname = tokens.nextToken();
+        String lname = tokens.nextToken();
+        String dob = tokens.nextToken();
+        int typeOrder = AccountLoader.typeOf(type, 0, type.length());
+        if (typeOrder < 0) {
+            reply.append("Invalid account type.\n");
+            return null;
+        }
+        Profile profile;
+        try {
+            Date date = Date.parse(dob, 0, dob.length());
+            AccountLoader.checkDOB(date, typeOrder == AccountDatabase.COLLEGE_CHECKING);
+            profile = new Profile(fname, lname, date);
+        } catch (IllegalArgumentException e) {
+            reply.append(e.getMessage()).append('\n');
+            return null;
+        }
+        return AccountDatabase.key(typeOrder, profile);
+    }
+
+    /**
+     * Appends "first last dob(type)" for an account
+     *
+     * @param reply              StringBuilder the account is appended to
+     * @param profile            Profile of the account holder
+     * @param accountTypeInitial Initial of the account type
+     * @return reply, for chaining
+     */
+    private static StringBuilder appendAccount(StringBuilder reply, Profile profile, String accountTypeInitial) {
+        reply.append(profile.getFname()).append(' ').append(profile.getLname()).append(' ');
+        profile.getDOB().appendTo(reply);
+        return reply.append('(').append(accountTypeInitial).append(')');
+    }
+
+    /**
+     * Starts the server on an empty database.
+     * With "--port n" (or "--port" for the default port) the server listens
+     * on a local TCP socket, otherwise it reads commands from standard input.
+     * With "--lock-free" deposits and withdrawals do not take locks.
+     * With "--journal directory" the database is rebuilt from the snapshot and
+     * journal in the directory and every change is recorded there; this
+     * cannot be combined with "--lock-free".
+     * With "--metrics" operations are counted and timed, and the metrics can
+     * be read with the STATS command or over JMX under the name
+     * bankingsoftware:type=AccountDatabase,name="server".
+     *
+     * @param args Command line arguments
+     * @throws IOException If the port cannot be opened or standard input cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        int port = -1;
+        boolean lockFree = false;
+        Path journalDirectory = null;
+        boolean metrics = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port")) {
+                boolean hasNumber = i + 1 < args.length && !args[i + 1].startsWith("--");
+                port = hasNumber ? Integer.parseInt(args[++i]) : DEFAULT_PORT;
+            } else if (args[i].equals("--lock-free")) {
+                lockFree = true;
+            } else if (args[i].equals("--journal") && i + 1 < args.length) {
+                journalDirectory = Path.of(args[++i]);
+            } else if (args[i].equals("--metrics")) {
+                metrics = true;
+            }
+        }
+
+        ConcurrentAccountDatabase database = new ConcurrentAccountDatabase(0, lockFree);
+        if (metrics) {
+            database.setMetrics(new DatabaseMetrics());
+            try {
+                database.getMetrics().register("server");
+            } catch (JMException e) {
+                System.err.println("Metrics could not be registered with JMX: " + e.getMessage());
+            }
+        }
+        if (journalDirectory != null) {
+            TransactionJournal.open(journalDirectory, database);
+        }
+        TransactionServer server = new TransactionServer(database);
+        if (port >= 0) {
+            System.out.println("Transaction Manager is listening on port " + port + ".");
+            server.listen(port);
+        } else {
+            System.out.println("Transaction Manager is running.");
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            server.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), out);
+            out.flush();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.bankinggui;
 import bankingsoftware.*;
 
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -8,13 +10,15 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.FileChooser;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Scanner;
-import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 
@@ -25,7 +29,15 @@ import java.util.StringTokenizer;
  * @author Jia Wern Chong, Frances Cortuna
  */
 public class TransactionManagerController {
+    private static final Path JOURNAL_DIRECTORY = Path.of(System.getProperty("user.home"), ".bankingsoftware",
+            "journal");
+
     private AccountDatabase accountDatabase = new AccountDatabase();
+    private final ExecutorService databaseThread = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "account-database");
+        thread.setDaemon(true);
+        return thread;
+    });
     private String activePane = "open";
 
     @FXML
@@ -75,6 +87,49 @@ public class TransactionManagerController {
         buttonPrintInterest.setOnAction(this::handleDisplayFeesInterestButton);
         buttonUpdateAcc.setOnAction(this::handleUpdateAccountsButton);
 
+        openJournal();
+    }
+
+    /**
+     * Rebuilds the account database from the journal of the last session and
+     * records every change from now on, so accounts are kept when the app exits.
+     * If the journal cannot be read, the app starts with an empty database
+     * and changes are not saved.
+     */
+    private void openJournal() {
+        runOnDatabase(() -> {
+            try {
+                TransactionJournal.open(JOURNAL_DIRECTORY, accountDatabase);
+            } catch (IOException e) {
+                return "Journal could not be opened, no accounts were restored and changes will not be saved: "
+                        + e.getMessage() + "\n";
+            }
+            return accountDatabase.getNumAcct() > 0 ? accountDatabase.getNumAcct() + " accounts restored.\n" : "";
+        });
+    }
+
+    /**
+     * Runs work on the account database on its own thread, one piece of work
+     * at a time, so waiting for the journal does not block the UI.
+     * The text the work returns, or the message of an exception it throws, is
+     * appended to the text area on the JavaFX thread.
+     *
+     * @param work Work on the database that returns the text to show
+     */
+    private void runOnDatabase(Callable<String> work) {
+        databaseThread.execute(() -> {
+            String output;
+            try {
+                output = work.call();
+            } catch (Exception e) {
+                String message = e.getMessage() != null ? e.getMessage() : e.toString();
+                output = message.endsWith("\n") ? message : message + "\n";
+            }
+            if (!output.isEmpty()) {
+                String text = output;
+                Platform.runLater(() -> textArea.appendText(text));
+            }
+        });
     }
 
     /**
@@ -246,43 +301,39 @@ public class TransactionManagerController {
     }
 
     /**
-     * Opens a new account
+     * Opens a new account on the database thread, unless it is a duplicate
      *
      * @param account New account object to open
      */
     private void openAccount(Account account) {
-        accountDatabase.open(account);
-        Profile profile = account.getProfile();
-        textArea.appendText(String.format("%s %s %s(%s) opened.\n", profile.getFname(), profile.getLname(),
-                profile.getDOB().toString(), account.getAccountTypeInitial()));
+        runOnDatabase(() -> {
+            checkDuplicateProfile(account);
+            accountDatabase.open(account);
+            Profile profile = account.getProfile();
+            return String.format("%s %s %s(%s) opened.\n", profile.getFname(), profile.getLname(),
+                    profile.getDOB().toString(), account.getAccountTypeInitial());
+        });
     }
 
     /**
-     * Closes an account.
-     * Throws an exception if account is not in database.
+     * Closes an account on the database thread.
+     * Reports an error if account is not in database.
      *
      * @param profile Profile of account to close
      * @param accountTypeInitial The initial of the account type
      */
     private void closeAccount(Profile profile, String accountTypeInitial) {
-        try {
-            for (int i = 0; i < accountDatabase.getNumAcct(); i++) {
-                Account otherAccount = accountDatabase.getAccountsArray()[i];
-                Profile otherProfile = otherAccount.getProfile();
-                if (profile.equals(otherProfile) && accountTypeInitial.equals(otherAccount.getAccountTypeInitial())) {
-                    accountDatabase.close(otherAccount);
-                    textArea.appendText(
-                            String.format("%s %s %s(%s) has been closed.\n", profile.getFname(), profile.getLname(),
-                                    profile.getDOB().toString(), accountTypeInitial));
-                    return;
-                }
+        runOnDatabase(() -> {
+            Account otherAccount = accountDatabase.getAccount(profile, accountTypeInitial);
+            if (otherAccount != null) {
+                accountDatabase.close(otherAccount);
+                return String.format("%s %s %s(%s) has been closed.\n", profile.getFname(), profile.getLname(),
+                        profile.getDOB().toString(), accountTypeInitial);
             }
 
             throw new Exception(String.format("%s %s %s(%s) is not in the database.\n",
                     profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
-        } catch (Exception e) {
-            textArea.appendText(e.getMessage());
-        }
+        });
     }
 
     /**
@@ -301,7 +352,6 @@ public class TransactionManagerController {
         }
 
         Checking newChecking = new Checking(profile, 0.0);
-        if (!checkDuplicateProfile(newChecking)) return;
         openAccount(newChecking);
     }
 
@@ -323,7 +373,6 @@ public class TransactionManagerController {
         Campus campusCode = parseCampusCode(campus);
 
         CollegeChecking newCollegeChecking = new CollegeChecking(profile, 0.0, campusCode);
-        if (!checkDuplicateProfile(newCollegeChecking)) return;
         openAccount(newCollegeChecking);
     }
 
@@ -355,7 +404,6 @@ public class TransactionManagerController {
         }
 
         Savings newSavings = new Savings(profile, 0.0, buttonLoyal.isSelected());
-        if (!checkDuplicateProfile(newSavings)) return;
         openAccount(newSavings);
     }
 
@@ -376,7 +424,6 @@ public class TransactionManagerController {
         boolean loyaltyStatus = true;
 
         MoneyMarket newMoneyMarket = new MoneyMarket(profile, 0.0, loyaltyStatus, 0);
-        if (!checkDuplicateProfile(newMoneyMarket)) return;
         openAccount(newMoneyMarket);
     }
 
@@ -390,38 +437,9 @@ public class TransactionManagerController {
      */
     private boolean checkDOB(Date dob, String accType) {
         try {
-            Date today = new Date();
-            int dateComparison = dob.compareTo(today);
-
-            if (!dob.isValid()) {
-                throw new Exception("DOB invalid: is not a valid calendar date.\n");
-            }
-
-            if (dateComparison >= 0) {
-                throw new Exception("DOB invalid: cannot be today or a future date.\n");
-            }
-
-            if (today.getYear() - dob.getYear() < 16) {
-                throw new Exception("DOB invalid: user under 16.\n");
-            } else if (today.getYear() - dob.getYear() == 16) {
-                if (today.getMonth() < dob.getMonth()
-                        || (today.getMonth() == dob.getMonth() && today.getDay() < dob.getDay())) {
-                    throw new Exception("DOB invalid: user under 16.\n");
-                }
-            }
-
-            if (accType.equals("College Checking")) {
-                if (today.getYear() - dob.getYear() > 24) {
-                    throw new Exception("DOB invalid: user over 24.\n");
-                } else if(today.getYear() - dob.getYear() == 24) {
-                    if (today.getMonth() > dob.getMonth()
-                            || (today.getMonth() == dob.getMonth() && today.getDay() > dob.getDay())) {
-                        throw new Exception("DOB invalid: user over 24.\n");
-                }
-                }
-            }
-        } catch (Exception e) {
-            textArea.appendText(e.getMessage());
+            AccountLoader.checkDOB(dob, accType.equals("College Checking"));
+        } catch (IllegalArgumentException e) {
+            textArea.appendText(e.getMessage() + "\n");
             return false;
         }
         return true;
@@ -432,37 +450,25 @@ public class TransactionManagerController {
      * Also checks if a person opening a Checking or College Checking does not
      * already have another Checking or College Checking account.
      *
+     * Runs on the database thread.
+     *
      * @param account New profile being made
-     * @return True if account is not already in account database, false otherwise.
+     * @throws Exception If account is already in account database
      */
-    private boolean checkDuplicateProfile(Account account) {
-        try{
-            Profile profile = account.getProfile();
+    private void checkDuplicateProfile(Account account) throws Exception {
+        Profile profile = account.getProfile();
 
-            if (account.getAccountType().equals("Checking") || account.getAccountType().equals("College Checking")) {
-                for (int i = 0; i < accountDatabase.getNumAcct(); i++) {
-                    Account otherAccount = accountDatabase.getAccountsArray()[i];
-                    Profile otherProfile = otherAccount.getProfile();
-
-                    if (account.getProfile().equals(otherProfile) && (otherAccount.getAccountType().equals("Checking")
-                            || otherAccount.getAccountType().equals("College Checking"))) {
-                        throw new Exception(String.format("%s %s %s(%s) is already in the database.\n",
-                                profile.getFname(), profile.getLname(), profile.getDOB().toString(),
-                                account.getAccountTypeInitial()));
-                    }
-                }
-            }
+        if (account instanceof Checking && accountDatabase.holdsAccountOfType(profile, Checking.class)) {
+            throw new Exception(String.format("%s %s %s(%s) is already in the database.\n",
+                    profile.getFname(), profile.getLname(), profile.getDOB().toString(),
+                    account.getAccountTypeInitial()));
+        }
 
-            if (accountDatabase.contains(account)) {
-                throw new Exception(
-                        String.format("%s %s %s(%s) is already in the database.\n", profile.getFname(),
-                                profile.getLname(), profile.getDOB().toString(), account.getAccountTypeInitial()));
-            }
-        } catch (Exception e) {
-            textArea.appendText(e.getMessage());
-            return false;
+        if (accountDatabase.contains(account)) {
+            throw new Exception(
+                    String.format("%s %s %s(%s) is already in the database.\n", profile.getFname(),
+                            profile.getLname(), profile.getDOB().toString(), account.getAccountTypeInitial()));
         }
-        return true;
     }
 
     /**
@@ -483,35 +489,37 @@ public class TransactionManagerController {
         String formattedDate = dateOfBirth.format(formatter);
         Date dob = new Date(formattedDate);
 
-        Profile profile = new Profile(firstName, lastName, dob);
-
         String value = amountbox.getText().trim();
         if (!checkAmount(value, "Deposit")) return;
 
         Double amount = Double.parseDouble(value);
+        boolean deposit = event.getSource() == buttonDeposit;
+
+        runOnDatabase(() -> {
+            Profile profile = accountDatabase.getProfiles().canonical(new Profile(firstName, lastName, dob));
+
+            Account account = null;
+            String accountTypeInitial = null;
+
+            if (accountType.equals("Checking")) {
+                accountTypeInitial = "C";
+                account = new Checking(profile, amount);
+            } else if (accountType.equals("College Checking")) {
+                accountTypeInitial = "CC";
+                account = new CollegeChecking(profile, amount);
+            } else if (accountType.equals("Savings")) {
+                accountTypeInitial = "S";
+                account = new Savings(profile, amount);
+            } else if (accountType.equals("Money Market")) {
+                accountTypeInitial = "MM";
+                account = new MoneyMarket(profile, amount);
+            }
 
-        Account account = null;
-        String accountTypeInitial = null;
-
-        if (accountType.equals("Checking")) {
-            accountTypeInitial = "C";
-            account = new Checking(profile, amount);
-        } else if (accountType.equals("College Checking")) {
-            accountTypeInitial = "CC";
-            account = new CollegeChecking(profile, amount);
-        } else if (accountType.equals("Savings")) {
-            accountTypeInitial = "S";
-            account = new Savings(profile, amount);
-        } else if (accountType.equals("Money Market")) {
-            accountTypeInitial = "MM";
-            account = new MoneyMarket(profile, amount);
-        }
-
-        if (event.getSource() == buttonDeposit) {
-            depositMoney(account, accountTypeInitial);
-        } else if (event.getSource() == buttonWithdraw) {
-            withdrawMoney(account, accountTypeInitial);
-        }
+            if (deposit) {
+                return depositMoney(account, accountTypeInitial);
+            }
+            return withdrawMoney(account, accountTypeInitial);
+        });
     }
 
     /**
@@ -539,27 +547,24 @@ public class TransactionManagerController {
     }
 
     /**
-     * Deposits money into an account.
+     * Deposits money into an account. Runs on the database thread.
      * Throws an exception if account is not in database.
      *
      * @param account Account to deposit money into
      * @param accountTypeInitial Type of account in initial form.
+     * @return Message to show
+     * @throws Exception If account is not in database
      */
-    private void depositMoney(Account account, String accountTypeInitial) {
+    private String depositMoney(Account account, String accountTypeInitial) throws Exception {
         Profile profile = account.getProfile();
-        try {
-            if (!accountDatabase.contains(account)) {
-                throw new Exception(String.format("%s %s %s(%s) is not in the database.\n",
-                        profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
-            }
-
-            accountDatabase.deposit(account);
-            textArea.appendText(
-                    String.format("%s %s %s(%s) Deposit - balance updated.\n", profile.getFname(), profile.getLname(),
-                            profile.getDOB().toString(), accountTypeInitial));
-        } catch (Exception e) {
-            textArea.appendText(e.getMessage());
+        if (!accountDatabase.contains(account)) {
+            throw new Exception(String.format("%s %s %s(%s) is not in the database.\n",
+                    profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
         }
+
+        accountDatabase.deposit(account);
+        return String.format("%s %s %s(%s) Deposit - balance updated.\n", profile.getFname(), profile.getLname(),
+                profile.getDOB().toString(), accountTypeInitial);
     }
 
     /**
@@ -567,27 +572,26 @@ public class TransactionManagerController {
      * Throws an exception if account is not in database or if there is insufficient
      * funds.
      *
+     * Runs on the database thread.
+     *
      * @param account Account to withdraw money from
      * @param accountTypeInitial Type of account in initial form.
+     * @return Message to show
+     * @throws Exception If account is not in database or funds are insufficient
      */
-    private void withdrawMoney(Account account, String accountTypeInitial) {
+    private String withdrawMoney(Account account, String accountTypeInitial) throws Exception {
         Profile profile = account.getProfile();
-        try {
-            if (!accountDatabase.contains(account)) {
-                throw new Exception(String.format("%s %s %s(%s) is not in the database.\n",
-                        profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
-            }
+        if (!accountDatabase.contains(account)) {
+            throw new Exception(String.format("%s %s %s(%s) is not in the database.\n",
+                    profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
+        }
 
-            if (!accountDatabase.withdraw(account)) {
-                throw new Exception(String.format("%s %s %s(%s) Withdraw - insufficient fund.\n",
-                        profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
-            } else {
-                textArea.appendText(String.format("%s %s %s(%s) Withdraw - balance updated.\n",
-                        profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
-            }
-        } catch (Exception e) {
-            textArea.appendText(e.getMessage());
+        if (!accountDatabase.withdraw(account)) {
+            throw new Exception(String.format("%s %s %s(%s) Withdraw - insufficient fund.\n",
+                    profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial));
         }
+        return String.format("%s %s %s(%s) Withdraw - balance updated.\n",
+                profile.getFname(), profile.getLname(), profile.getDOB().toString(), accountTypeInitial);
     }
 
     /**
@@ -595,169 +599,73 @@ public class TransactionManagerController {
      */
     @FXML
     private void handleDisplayButton(ActionEvent event) {
-        if(accountDatabase.getNumAcct() == 0) {
-            textArea.appendText("Account Database is empty!\n");
-            return;
-        }
-        textArea.appendText("\n*Accounts sorted by account type and profile.\n");
-        String accountInfo = accountDatabase.printSorted();
-        textArea.appendText(accountInfo);
-        textArea.appendText("*end of list.\n\n");
+        runOnDatabase(() -> {
+            if(accountDatabase.getNumAcct() == 0) {
+                return "Account Database is empty!\n";
+            }
+            return "\n*Accounts sorted by account type and profile.\n" + accountDatabase.printSorted()
+                    + "*end of list.\n\n";
+        });
     }
 
     /**
      * Event Handler for the Load Accounts from a File button
-     * Read file to get the information of the accounts before adding
-     * the account to Account Database.
+     * Reads the chosen file on the database thread with AccountLoader, which adds
+     * the accounts to Account Database. The tabs are disabled until the load is done.
      * @param event
      */
     @FXML
     private void handleLoadAccButton(ActionEvent event) {
-        try {
-            FileChooser fileChooser = new FileChooser();
-            File readFile = fileChooser.showOpenDialog(null);
-            Scanner fileScanner = new Scanner(readFile);
-
-            while(fileScanner.hasNextLine()) {
-                StringTokenizer fileString = new StringTokenizer(fileScanner.nextLine(), ",");
-                String fileCommand = fileString.nextToken();
-
-                switch (fileCommand) {
-                    case "C" -> addCheckingLoad(fileString);
-                    case "CC" -> addCollegeCheckingLoad(fileString);
-                    case "S" -> addSavingsLoad(fileString);
-                    case "MM" -> addMoneyMarketLoad(fileString);
-                    default -> {textArea.appendText("Invalid account type.\n");}
-                }
-            }
-            textArea.appendText("Accounts loaded.\n");
-        } catch (FileNotFoundException e) {
-            textArea.appendText("File not found\n");
-        } if (accountDatabase.getNumAcct() == 0) {
-            textArea.appendText("Account Database is empty.\n");
-        }
-    }
-
-    /**
-     * Add Checking to Account Database from read file
-     * Only called at loadAcc()
-     * @param input The data token to add Checking
-     */
-    private void addCheckingLoad(StringTokenizer input) {
-        if (input.countTokens() != 5) {
-            textArea.appendText("Missing data for loading an account.\n");
+        FileChooser fileChooser = new FileChooser();
+        File readFile = fileChooser.showOpenDialog(null);
+        if (readFile == null) {
             return;
         }
-        String fname = input.nextToken();
-        String lname = input.nextToken();
-        String dob = input.nextToken();
-        double amount = Double.parseDouble(input.nextToken());
-        Date date = new Date(dob);
-        boolean check = checkDOB(date, "Checking");
-
-        if (check) {
-            Profile profile = new Profile(fname, lname, date);
-            Checking checkingAcc = new Checking(profile, amount);
-
-            if (!accountDatabase.contains(checkingAcc)) {
-                accountDatabase.open(checkingAcc);
-            }
-        }
-    }
 
-    /**
-     * Add College Checking to Account Database from read file
-     * Only called at loadAcc()
-     * @param input The data token to add College Checking
-     */
-    private void addCollegeCheckingLoad(StringTokenizer input) {
-        if (input.countTokens() != 5) {
-            textArea.appendText("Missing data for loading an account.\n");
-            return;
-        }
-        String fname = input.nextToken();
-        String lname = input.nextToken();
-        String dob = input.nextToken();
-        double amount = Double.parseDouble(input.nextToken());
-        Date date = new Date(dob);
-        boolean check = checkDOB(date, "College Checking");
-
-        if (check) {
-            Profile profile = new Profile(fname, lname, date);
-            CollegeChecking collegeCheckingAcc = new CollegeChecking(profile, amount);
-
-            if (!accountDatabase.contains(collegeCheckingAcc)) {
-                accountDatabase.open(collegeCheckingAcc);
+        AccountLoader loader = new AccountLoader(accountDatabase);
+        Task<LoadReport> loadTask = new Task<>() {
+            @Override
+            protected LoadReport call() throws IOException {
+                return loader.load(readFile.toPath());
             }
-        }
-    }
-
-    /**
-     * Parses integer to return boolean for loyalty status
-     *
-     * @param loyaltyStatusCode Loyalty status code from input
-     * @return Appropriate boolean for loyalty status
-     */
-    private boolean parseLoyaltyStatus(int loyaltyStatusCode) {
-        switch (loyaltyStatusCode) {
-            case 0:
-                return false;
-            case 1:
-                return true;
-            default:
-                throw new IllegalArgumentException("Invalid loyal customer status code.");
-        }
+        };
+        loadTask.setOnSucceeded(e -> {
+            LoadReport report = loadTask.getValue();
+            for (String reason : report.getReasons()) {
+                textArea.appendText(reason + "\n");
+            }
+            textArea.appendText(report + "\n");
+            textArea.appendText("Accounts loaded.\n");
+            finishLoad();
+        });
+        loadTask.setOnFailed(e -> {
+            Throwable failure = loadTask.getException();
+            textArea.appendText("Accounts could not be loaded: "
+                    + (failure.getMessage() != null ? failure.getMessage() : failure) + "\n");
+            finishLoad();
+        });
+
+        setTabsDisabled(true);
+        databaseThread.execute(loadTask);
     }
 
     /**
-     * Add Savings to Account Database from read file
-     * Only called at loadAcc()
-     * @param input The data token to add Savings
+     * Enables the tabs again after a load and reports if the database is still empty
      */
-    private void addSavingsLoad(StringTokenizer input) {
-        if (input.countTokens() != 5) {
-            textArea.appendText("Missing data for loading an account.\n");
-            return;
-        }
-        String fname = input.nextToken();
-        String lname = input.nextToken();
-        String dob = input.nextToken();
-        double amount = Double.parseDouble(input.nextToken());
-        int loyaltyStatusCode = Integer.parseInt(input.nextToken());
-
-        boolean loyaltyStatus = parseLoyaltyStatus(loyaltyStatusCode);
-        Date date = new Date(dob);
-        boolean check = checkDOB(date, "College Checking");
-
-        if (check) {
-            Profile profile = new Profile(fname, lname, date);
-            Savings savingsAcc = new Savings(profile, amount, loyaltyStatus);
-
-            if (!accountDatabase.contains(savingsAcc)) {
-                accountDatabase.open(savingsAcc);
-            }
-        }
+    private void finishLoad() {
+        setTabsDisabled(false);
+        runOnDatabase(() -> accountDatabase.getNumAcct() == 0 ? "Account Database is empty.\n" : "");
     }
 
     /**
-     * Add Money Market to Account Database from read file
-     * Only called at loadAcc()
-     * @param input The data token to add Money Market
+     * Disables or enables the controls of all tabs
+     *
+     * @param disabled True to disable the tabs, false to enable them
      */
-    private void addMoneyMarketLoad(StringTokenizer input) {
-        if (input.countTokens() != 5) {
-            textArea.appendText("Missing data for loading an account.\n");
-            return;
-        }
-        String fname = input.nextToken();
-        String lname = input.nextToken();
-        String dob = input.nextToken();
-        double amount = Double.parseDouble(input.nextToken());
-        int loyaltyStatusCode = Integer.parseInt(input.nextToken());
-
-        boolean loyaltyStatus = parseLoyaltyStatus(loyaltyStatusCode);
-        Date date = new Date(dob);
-        boolean check = checkDOB(date, "College Checking");
+    private void setTabsDisabled(boolean disabled) {
+        openTab.setDisable(disabled);
+        depositTab.setDisable(disabled);
+        accTab.setDisable(disabled);
     }
 
     /**
@@ -765,14 +673,13 @@ public class TransactionManagerController {
      */
     @FXML
     private void handleDisplayFeesInterestButton(ActionEvent event) {
-        if(accountDatabase.getNumAcct() == 0) {
-            textArea.appendText("Account Database is empty!\n");
-            return;
-        }
-        textArea.appendText("\n*list of accounts with fee and monthly interest.\n");
-        String accountInfo = accountDatabase.printFeesAndInterests();
-        textArea.appendText(accountInfo);
-        textArea.appendText("*end of list.\n");
+        runOnDatabase(() -> {
+            if(accountDatabase.getNumAcct() == 0) {
+                return "Account Database is empty!\n";
+            }
+            return "\n*list of accounts with fee and monthly interest.\n" + accountDatabase.printFeesAndInterests()
+                    + "*end of list.\n";
+        });
     }
 
     /**
@@ -781,13 +688,13 @@ public class TransactionManagerController {
      */
     @FXML
     private void handleUpdateAccountsButton(ActionEvent event) {
-        if(accountDatabase.getNumAcct() == 0) {
-            textArea.appendText("Account Database is empty!");
-            return;
-        }
-        textArea.appendText("\n*list of accounts with fees and interests applied.\n");
-        String accountInfo = accountDatabase.printUpdatesBalances();
-        textArea.appendText(accountInfo);
-        System.out.println("*end of list.\n");
+        runOnDatabase(() -> {
+            if(accountDatabase.getNumAcct() == 0) {
+                return "Account Database is empty!";
+            }
+            String accountInfo = accountDatabase.printUpdatesBalances();
+            System.out.println("*end of list.\n");
+            return "\n*list of accounts with fees and interests applied.\n" + accountInfo;
+        });
     }
 }
\ No newline at end of file
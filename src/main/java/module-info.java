@@ -1,8 +1,11 @@
 module com.bankinggui {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
+    requires jdk.jfr;
 
 
     opens com.bankinggui to javafx.fxml;
     exports com.bankinggui;
+    exports bankingsoftware to java.management;
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package bankingsoftware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * AccountLoaderTest class that checks that bad rows of an account file are
+ * rejected without stopping the load.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class AccountLoaderTest {
+    private static final String ROWS = """
+            C,John,Doe,1/2/1990,100
+            S,Jane,Doe,1/2/1990,1e300,1
+            MM,Jane,Doe,1/2/1990,2000.50
+            S,Jim,Doe,1/2/1990,abc,1
+            """;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * An amount too large to be kept in cents is a rejected row
+     */
+    @Test
+    void rejectsAmountOutOfRange() throws IOException {
+        AccountDatabase database = new AccountDatabase();
+        LoadReport report = new AccountLoader(database).load(new BufferedReader(new StringReader(ROWS)));
+        assertReport(report, database);
+    }
+
+    /**
+     * The parallel load rejects the same rows as the line by line load
+     */
+    @Test
+    void rejectsAmountOutOfRangeInParallel() throws IOException {
+        Path file = directory.resolve("accounts.txt");
+        Files.writeString(file, ROWS, StandardCharsets.UTF_8);
+        AccountDatabase database = new AccountDatabase();
+        LoadReport report = new AccountLoader(database).loadParallel(file);
+        assertReport(report, database);
+    }
+
+    /**
+     * A duplicate found when its batch is opened is kept ahead of the rejected
+     * rows after it, and the line by line and parallel loads keep the same
+     * MAX_REASONS reasons in line order
+     */
+    @Test
+    void keepsReasonsInLineOrder() throws IOException {
+        StringBuilder rows = new StringBuilder("C,John,Doe,1/2/1990,100\nC,John,Doe,1/2/1990,5\n");
+        for (int i = 0; i < LoadReport.MAX_REASONS; i++) {
+            rows.append("S,Bad,Row,1/2/1990,abc,1\n");
+        }
+        for (int i = 0; i < 40_000; i++) {
+            rows.append("MM,First").append(i).append(",Last,1/2/1990,2000\n");
+            if (i % 1000 == 0) {
+                rows.append("MM,First").append(i).append(",Last,1/2/1990,10\nX,Bad,Row,1/2/1990,1\n");
+            }
+        }
+        Path file = directory.resolve("reasons.txt");
+        Files.writeString(file, rows, StandardCharsets.UTF_8);
+
+        LoadReport report = new AccountLoader(new AccountDatabase()).load(file);
+        List<String> reasons = report.getReasons();
+        assertEquals(LoadReport.MAX_REASONS, reasons.size());
+        assertEquals("line 2: John Doe 1/2/1990(C) is already in the database.", reasons.get(0));
+        assertEquals("line 3: Not a valid amount.", reasons.get(1));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            LoadReport parallel = new AccountLoader(new AccountDatabase()).loadParallel(file, pool);
+            assertEquals(report.toString(), parallel.toString());
+            assertEquals(reasons, parallel.getReasons());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Money.parseCents throws NumberFormatException, not ArithmeticException, for huge amounts
+     */
+    @Test
+    void parseCentsRejectsAmountOutOfRange() {
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("1e300", 0, 5));
+        assertEquals(150050, Money.parseCents("1500.5", 0, 6));
+    }
+
+    /**
+     * Checks the report and database after loading ROWS
+     */
+    private static void assertReport(LoadReport report, AccountDatabase database) {
+        assertEquals(2, report.getLoaded());
+        assertEquals(2, report.getRejected());
+        assertEquals(2, database.getNumAcct());
+        assertEquals("line 2: Not a valid amount.", report.getReasons().get(0));
+    }
+}
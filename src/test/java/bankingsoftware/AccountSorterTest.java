@@ -0,0 +1,125 @@
+package bankingsoftware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * AccountSorterTest class that checks the radix sort of the account reports
+ * against a comparator sort by account type and Profile.compareTo.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class AccountSorterTest {
+    private static final String ODD_CHARACTERS = "aAzZ09 -'é{[`~";
+    private static final String LETTERS = "abcdeABCDE";
+
+    /**
+     * Random holders, with odd characters and long names mixed in, are
+     * listed in the same order as a comparator sort gives, by both backends
+     */
+    @Test
+    void sortsLikeComparator() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            int count = round < 16 ? random.nextInt(3000) : 50000;
+            AccountDatabase database = round % 2 == 0 ? new AccountDatabase() : new OffHeapAccountDatabase();
+            String[] lnames = names(random, 50 + random.nextInt(500));
+            String[] fnames = names(random, 30 + random.nextInt(300));
+            for (int i = 0; i < count; i++) {
+                Profile holder = new Profile(fnames[random.nextInt(fnames.length)],
+                        lnames[random.nextInt(lnames.length)],
+                        new Date(1 + random.nextInt(12), 1 + random.nextInt(28), 1900 + random.nextInt(200)));
+                database.open(account(random.nextInt(4), holder));
+            }
+            assertSorted(database, "round " + round);
+        }
+    }
+
+    /**
+     * Holders whose names all start with a character that cuts their sort
+     * keys are sorted by names in n log n time, not quadratic time
+     */
+    @Test
+    void sortsNamesCutAtTheFirstCharacterQuickly() {
+        for (String prefix : new String[]{"É", "O'"}) {
+            Random random = new Random(11);
+            AccountDatabase database = new AccountDatabase();
+            for (int i = 0; i < 50000; i++) {
+                Profile holder = new Profile("F" + random.nextInt(1000), prefix + random.nextInt(1000000),
+                        new Date(1 + random.nextInt(12), 1 + random.nextInt(28), 1950 + random.nextInt(50)));
+                database.open(account(random.nextInt(4), holder));
+            }
+            assertTimeout(Duration.ofSeconds(10), () -> assertSorted(database, prefix));
+        }
+    }
+
+    /**
+     * Checks that the sorted report of a database lists its accounts in the
+     * order of a comparator sort
+     */
+    private static void assertSorted(AccountDatabase database, String message) {
+        List<Account> expected = new ArrayList<>();
+        for (Account account : database.getAccountsArray()) {
+            if (account != null) {
+                expected.add(account);
+            }
+        }
+        expected.sort(Comparator.comparingInt(AccountSorterTest::typeRank)
+                .thenComparing(Account::getProfile));
+        List<String> lines = database.printSorted().lines().toList();
+        assertEquals(expected.size(), lines.size(), message);
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(expected.get(i).toString(), lines.get(i), message + ", line " + i);
+        }
+    }
+
+    /**
+     * Returns random names, a tenth of them with odd characters and a tenth long
+     */
+    private static String[] names(Random random, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            String alphabet = random.nextInt(10) == 0 ? ODD_CHARACTERS : LETTERS;
+            int length = random.nextInt(10) == 0 ? 8 + random.nextInt(12) : 1 + random.nextInt(4);
+            StringBuilder name = new StringBuilder(random.nextInt(5) == 0 ? "Pfx" : "");
+            for (int j = 0; j < length; j++) {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            names[i] = name.toString();
+        }
+        return names;
+    }
+
+    /**
+     * Returns an account of a type rank
+     */
+    private static Account account(int type, Profile holder) {
+        return switch (type) {
+            case AccountDatabase.CHECKING -> new Checking(holder, 1);
+            case AccountDatabase.COLLEGE_CHECKING -> new CollegeChecking(holder, 1, Campus.CAMDEN);
+            case AccountDatabase.MONEY_MARKET -> new MoneyMarket(holder, 3000, true, 0);
+            default -> new Savings(holder, 1, true);
+        };
+    }
+
+    /**
+     * Returns the type rank of an account
+     */
+    private static int typeRank(Account account) {
+        if (account instanceof CollegeChecking) {
+            return AccountDatabase.COLLEGE_CHECKING;
+        } else if (account instanceof Checking) {
+            return AccountDatabase.CHECKING;
+        } else if (account instanceof MoneyMarket) {
+            return AccountDatabase.MONEY_MARKET;
+        }
+        return AccountDatabase.SAVINGS;
+    }
+}
@@ -0,0 +1,244 @@
+package bankingsoftware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ConcurrentAccountDatabaseTest class that checks the database when several
+ * threads open and close accounts at the same time.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class ConcurrentAccountDatabaseTest {
+    private static final int HOLDERS = 2000;
+
+    /**
+     * Two tellers that open a Checking and a College Checking account for the
+     * same holders at the same time open exactly one of them per holder
+     */
+    @Test
+    void opensOneCheckingPerHolder() throws InterruptedException {
+        ConcurrentAccountDatabase database = new ConcurrentAccountDatabase();
+        Profile[] holders = new Profile[HOLDERS];
+        for (int i = 0; i < HOLDERS; i++) {
+            holders[i] = new Profile("First" + i, "Last", new Date(1, 2, 2003));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        Thread checking = new Thread(() -> {
+            await(start);
+            for (Profile holder : holders) {
+                database.openUnlessHeld(new Checking(holder, 100), Checking.class);
+            }
+        });
+        Thread collegeChecking = new Thread(() -> {
+            await(start);
+            for (Profile holder : holders) {
+                database.openUnlessHeld(new CollegeChecking(holder, 100, Campus.NEWARK), Checking.class);
+            }
+        });
+        checking.start();
+        collegeChecking.start();
+        start.countDown();
+        checking.join();
+        collegeChecking.join();
+
+        assertEquals(HOLDERS, database.getNumAcct());
+        for (Profile holder : holders) {
+            boolean hasChecking = database.contains(new Checking(holder, 0));
+            boolean hasCollegeChecking = database.contains(new CollegeChecking(holder, 0));
+            assertTrue(hasChecking ^ hasCollegeChecking, holder.getFname());
+        }
+    }
+
+    /**
+     * Reports run while other threads open and close accounts see a consistent
+     * array, and once the threads are done the reports match a database that
+     * holds the same accounts
+     */
+    @Test
+    void reportsMatchAfterConcurrentOpensAndCloses() throws InterruptedException {
+        ConcurrentAccountDatabase database = new ConcurrentAccountDatabase();
+        int tellers = 4;
+        Thread[] threads = new Thread[tellers];
+        for (int t = 0; t < tellers; t++) {
+            int teller = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < HOLDERS; i++) {
+                    Profile holder = new Profile("First" + i, "Teller" + teller, new Date(1, 2, 1990));
+                    database.open(new Savings(holder, 100 + i, false));
+                    database.open(new MoneyMarket(holder, 3000));
+                    if (i % 3 == 0) {
+                        database.close(new Savings(holder, 0));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        while (threads[0].isAlive()) {
+            Account[] accounts = database.getAccountsArray();
+            for (Account account : accounts) {
+                assertNotNull(account);
+            }
+            database.printSorted();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        AccountDatabase expected = new AccountDatabase();
+        for (Account account : database.getAccountsArray()) {
+            expected.open(account);
+        }
+        assertEquals(database.getNumAcct(), database.getAccountsArray().length);
+        assertEquals(expected.getNumAcct(), database.getNumAcct());
+        assertEquals(expected.printSorted(), database.printSorted());
+        assertEquals(expected.printFeesAndInterests(), database.printFeesAndInterests());
+    }
+
+    /**
+     * A report whose reader has stopped reading does not hold the locks, so
+     * other tellers can still open, deposit into and close accounts
+     */
+    @Test
+    void tellersRunWhileReportIsBlocked() throws InterruptedException {
+        ConcurrentAccountDatabase database = new ConcurrentAccountDatabase();
+        for (int i = 0; i < HOLDERS; i++) {
+            database.open(new Checking(new Profile("First" + i, "Last", new Date(1, 2, 1990)), 100));
+        }
+        tellersRunWhileReportIsBlocked(database, database::printSorted);
+        tellersRunWhileReportIsBlocked(database, database::printFeesAndInterests);
+        tellersRunWhileReportIsBlocked(database, database::printUpdatesBalances);
+    }
+
+    /**
+     * Runs a report into a sink that blocks, and checks a teller is not held up by it
+     *
+     * @param database Database to check
+     * @param report   Report that writes to a sink
+     */
+    private static void tellersRunWhileReportIsBlocked(ConcurrentAccountDatabase database, Report report)
+            throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            try {
+                report.writeTo(new BlockingSink(writing, release));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        reader.start();
+        await(writing);
+
+        Profile holder = new Profile("Gus", "Hale", new Date(6, 6, 1966));
+        Thread teller = new Thread(() -> {
+            database.open(new Savings(holder, 100, false));
+            database.deposit(new Savings(holder, 50));
+            database.close(new Savings(holder, 0));
+        });
+        teller.start();
+        teller.join(10_000);
+        boolean blocked = teller.isAlive();
+        release.countDown();
+        reader.join();
+        teller.join();
+        assertFalse(blocked);
+    }
+
+    /**
+     * In lock-free mode, a deposit, withdrawal or batch that found an account
+     * before another thread closed it fails instead of changing the closed balance
+     */
+    @Test
+    void lockFreeTransactionsFailOnClosedAccount() {
+        ConcurrentAccountDatabase database = new ConcurrentAccountDatabase(0, true);
+        Profile holder = new Profile("Ida", "Lund", new Date(3, 4, 1975));
+        database.open(new MoneyMarket(holder, 3000));
+        Account found = database.batchAccount(holder, AccountDatabase.typeOrder(new MoneyMarket(holder, 0)));
+        assertNotNull(found);
+        assertTrue(database.close(new MoneyMarket(holder, 0)));
+
+        assertTrue(found.isClosed());
+        assertEquals(TransactionBatch.NOT_FOUND, AccountDatabase.creditAtomic(found, 100));
+        assertEquals(TransactionBatch.NOT_FOUND, AccountDatabase.debitAtomic(found, 100));
+        TransactionBatch batch = new TransactionBatch();
+        batch.deposit(holder, "MM", 100);
+        batch.withdraw(holder, "MM", 100);
+        byte[] results = new byte[batch.size()];
+        database.applyGroup(found, batch, new long[] {0, 1}, 0, 2, results, true);
+        assertEquals(TransactionBatch.NOT_FOUND, results[0]);
+        assertEquals(TransactionBatch.NOT_FOUND, results[1]);
+        assertTrue(found.isClosed());
+        assertThrows(IllegalArgumentException.class, () -> database.deposit(new MoneyMarket(holder, 1)));
+    }
+
+    /**
+     * Report that writes to a sink
+     */
+    private interface Report {
+        void writeTo(Appendable output) throws IOException;
+    }
+
+    /**
+     * Sink that blocks on its first line until released, like a connection whose client stopped reading
+     */
+    private static class BlockingSink implements Appendable {
+        private final CountDownLatch writing;
+        private final CountDownLatch release;
+
+        /**
+         * Creates a sink that blocks until released
+         *
+         * @param writing Counted down when the first line is written
+         * @param release Latch the sink waits for
+         */
+        BlockingSink(CountDownLatch writing, CountDownLatch release) {
+            this.writing = writing;
+            this.release = release;
+        }
+
+        /**
+         * Takes a line, blocking until released
+         */
+        @Override
+        public Appendable append(CharSequence text) {
+            writing.countDown();
+            await(release);
+            return this;
+        }
+
+        /**
+         * Takes part of a line, blocking until released
+         */
+        @Override
+        public Appendable append(CharSequence text, int start, int end) {
+            return append(text.subSequence(start, end));
+        }
+
+        /**
+         * Takes a character, blocking until released
+         */
+        @Override
+        public Appendable append(char c) {
+            return append(String.valueOf(c));
+        }
+    }
+
+    /**
+     * Waits for a latch, ignoring interrupts
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
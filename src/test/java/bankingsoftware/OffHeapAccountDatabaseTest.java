@@ -0,0 +1,199 @@
+package bankingsoftware;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * OffHeapAccountDatabaseTest class that checks the off-heap database gives
+ * the same results and reports as the array-backed AccountDatabase.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class OffHeapAccountDatabaseTest {
+    private static final int HOLDERS = 5000;
+    private static final int MORE_THAN_ONE_CHUNK = 70_000;
+    private static final String[] NAMES = {"Ann", "bob", "CAL", "Dee", "eve", "Fay", "Gus", "hal"};
+
+    @TempDir
+    Path directory;
+
+    /**
+     * The same opens, closes, deposits, withdrawals, batches and month-end
+     * updates give the same results and reports in direct memory, in a mapped
+     * file and in the array
+     */
+    @Test
+    void reportsMatchArrayDatabase() throws IOException {
+        AccountDatabase array = new AccountDatabase();
+        try (OffHeapAccountDatabase direct = new OffHeapAccountDatabase();
+             OffHeapAccountDatabase mapped = new OffHeapAccountDatabase(directory.resolve("records"), 16)) {
+            runWorkload(array, direct, mapped);
+        }
+    }
+
+    /**
+     * Accounts spread over more than one chunk of records, with closes moving
+     * records between chunks, are reported the same as in the array
+     */
+    @Test
+    void reportsMatchArrayDatabaseAcrossChunks() throws IOException {
+        AccountDatabase array = new AccountDatabase();
+        try (OffHeapAccountDatabase direct = new OffHeapAccountDatabase()) {
+            AccountDatabase[] databases = {array, direct};
+            for (int i = 0; i < MORE_THAN_ONE_CHUNK; i++) {
+                Profile holder = new Profile("First" + i, "Last" + i % 31, new Date(1 + i % 12, 1 + i % 28, 1970));
+                compare(databases, database -> database.open(new Savings(holder, 10, true)) ? 1 : 0);
+            }
+            for (int i = 0; i < MORE_THAN_ONE_CHUNK; i += 3) {
+                Profile holder = new Profile("First" + i, "Last" + i % 31, new Date(1 + i % 12, 1 + i % 28, 1970));
+                compare(databases, database -> database.close(new Savings(holder, 0, false)) ? 1 : 0);
+            }
+            assertReportsMatch(databases);
+        }
+    }
+
+    /**
+     * Runs the same random workload on each database and compares them
+     *
+     * @param databases Databases to compare, the first one is the reference
+     */
+    private static void runWorkload(AccountDatabase... databases) {
+        Random random = new Random(42);
+        Profile[] holders = new Profile[HOLDERS];
+        for (int i = 0; i < HOLDERS; i++) {
+            holders[i] = new Profile(NAMES[random.nextInt(NAMES.length)] + i % 97,
+                    NAMES[random.nextInt(NAMES.length)], new Date(1 + i % 12, 1 + i % 28, 1960 + i % 40));
+        }
+        for (int i = 0; i < HOLDERS; i++) {
+            Profile holder = holders[i];
+            int type = random.nextInt(AccountDatabase.NUM_TYPES);
+            long cents = random.nextInt(1_000_000);
+            boolean flag = random.nextBoolean();
+            compare(databases, database -> database.open(account(type, holder, cents, flag)) ? 1 : 0);
+            if (i % 3 == 0) {
+                compare(databases, database -> database.open(new Savings(holder, 50, false)) ? 1 : 0);
+            }
+        }
+        assertReportsMatch(databases);
+
+        TransactionBatch batch = new TransactionBatch();
+        for (int i = 0; i < 2 * HOLDERS; i++) {
+            Profile holder = holders[random.nextInt(HOLDERS)];
+            int type = random.nextInt(AccountDatabase.NUM_TYPES);
+            long cents = 1 + random.nextInt(200_000);
+            switch (random.nextInt(5)) {
+                case 0 -> compare(databases, database -> database.close(AccountDatabase.key(type, holder)) ? 1 : 0);
+                case 1 -> compare(databases, database -> {
+                    Account key = account(type, holder, cents, false);
+                    if (!database.contains(key)) {
+                        return -1;
+                    }
+                    database.deposit(key);
+                    return 1;
+                });
+                case 2 -> compare(databases, database -> {
+                    Account key = account(type, holder, cents, false);
+                    return database.contains(key) ? (database.withdraw(key) ? 1 : 0) : -1;
+                });
+                case 3 -> batch.deposit(AccountDatabase.key(type, holder), cents);
+                default -> batch.withdraw(AccountDatabase.key(type, holder), cents);
+            }
+        }
+        byte[] expected = databases[0].apply(batch);
+        for (int i = 1; i < databases.length; i++) {
+            assertArrayEquals(expected, databases[i].apply(batch));
+        }
+        assertReportsMatch(databases);
+
+        String updated = databases[0].printUpdatesBalances();
+        for (int i = 1; i < databases.length; i++) {
+            assertEquals(updated, databases[i].printUpdatesBalances());
+        }
+        assertReportsMatch(databases);
+    }
+
+    /**
+     * Runs an operation on each database and checks they all give the same result
+     */
+    private static void compare(AccountDatabase[] databases, Operation operation) {
+        int expected = operation.run(databases[0]);
+        for (int i = 1; i < databases.length; i++) {
+            assertEquals(expected, operation.run(databases[i]));
+        }
+    }
+
+    /**
+     * Checks the databases hold the same accounts and give the same reports
+     */
+    private static void assertReportsMatch(AccountDatabase[] databases) {
+        for (int i = 1; i < databases.length; i++) {
+            assertEquals(databases[0].getNumAcct(), databases[i].getNumAcct());
+            assertEquals(databases[0].printSorted(), databases[i].printSorted());
+            assertEquals(databases[0].printFeesAndInterests(), databases[i].printFeesAndInterests());
+        }
+    }
+
+    /**
+     * Creates an account of a type rank with a balance in cents
+     */
+    private static Account account(int type, Profile holder, long cents, boolean flag) {
+        Account account = switch (type) {
+            case AccountDatabase.CHECKING -> new Checking(holder, 0);
+            case AccountDatabase.COLLEGE_CHECKING -> new CollegeChecking(holder, 0, Campus.NEWARK);
+            case AccountDatabase.SAVINGS -> new Savings(holder, 0, flag);
+            default -> new MoneyMarket(holder, 0, cents >= MoneyMarket.LOYAL_BALANCE, 0);
+        };
+        account.balance = cents;
+        return account;
+    }
+
+    /**
+     * An index too large for one buffer is refused before anything is allocated
+     */
+    @Test
+    void refusesIndexLargerThanOneBuffer() throws IOException {
+        try (OffHeapAccountDatabase database = new OffHeapAccountDatabase()) {
+            assertThrows(OutOfMemoryError.class, () -> database.ensureCapacity(1 << 28));
+            assertThrows(OutOfMemoryError.class, () -> database.ensureCapacity(Integer.MAX_VALUE));
+            database.open(new Checking(new Profile("Ann", "Lee", new Date(3, 14, 1990)), 10));
+            assertEquals(1, database.getNumAcct());
+        }
+    }
+
+    /**
+     * Opening and closing accounts of new holders does not grow the name pool,
+     * and names still used by another account are kept
+     */
+    @Test
+    void dropsNamesOfClosedAccounts() throws IOException {
+        try (OffHeapAccountDatabase database = new OffHeapAccountDatabase()) {
+            Profile kept = new Profile("Ann", "Lee", new Date(3, 14, 1990));
+            database.open(new Checking(kept, 10));
+            for (int i = 0; i < HOLDERS; i++) {
+                Profile holder = new Profile("First" + i, "Lee", new Date(1, 2, 1980));
+                database.open(new Savings(holder, 10, false));
+                database.close(new Savings(holder, 0, false));
+            }
+            assertEquals(2, database.getNumNames());
+            database.open(new Savings(new Profile("Bob", "Ray", new Date(5, 6, 1985)), 10, false));
+            assertEquals(4, database.getNumNames());
+            Profile found = database.getAccount(kept, "C").getProfile();
+            assertEquals("Ann", found.getFname());
+            assertEquals("Lee", found.getLname());
+        }
+    }
+
+    /**
+     * Operation on a database that returns a result to compare
+     */
+    private interface Operation {
+        int run(AccountDatabase database);
+    }
+}
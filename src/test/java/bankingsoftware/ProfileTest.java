@@ -0,0 +1,57 @@
+package bankingsoftware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ProfileTest class that checks that profiles are equal ignoring case, with
+ * the same hash code, whatever the default locale is.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class ProfileTest {
+    private static final Date DOB = new Date(1, 2, 1990);
+    private final Locale defaultLocale = Locale.getDefault();
+
+    /**
+     * Restores the default locale changed by a test
+     */
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    /**
+     * With a Turkish locale, where "I" lower-cases to a dotless i, names that
+     * differ only in case are still equal and hash the same
+     */
+    @Test
+    void equalIgnoringCaseInTurkishLocale() {
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        Profile upper = new Profile("JIM", "DOE", DOB);
+        Profile lower = new Profile("jim", "doe", DOB);
+        assertEquals(upper.hashCode(), lower.hashCode());
+        assertTrue(upper.equals(lower));
+        assertFalse(upper.equals(new Profile("jim", "doe", new Date(1, 3, 1990))));
+    }
+
+    /**
+     * The registry and the database find a holder typed in another case
+     */
+    @Test
+    void findsHolderInAnotherCase() {
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        AccountDatabase database = new AccountDatabase();
+        database.open(new Checking(new Profile("JIM", "DOE", DOB), 100));
+        Profile typed = new Profile("jim", "doe", DOB);
+        assertTrue(database.contains(new Checking(typed, 0)));
+        assertSame(database.getProfiles().canonical(new Profile("JIM", "DOE", DOB)),
+                database.getProfiles().canonical(typed));
+    }
+}
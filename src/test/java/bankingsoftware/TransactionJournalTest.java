@@ -0,0 +1,499 @@
+package bankingsoftware;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TransactionJournalTest class that checks a database is rebuilt from its
+ * journal after a restart or a crash, and that a change the journal could not
+ * write is not kept in memory.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class TransactionJournalTest {
+    private static final Path FIRST_SEGMENT = Path.of("journal-0000000000000000.log");
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Opens, deposits, withdraws, closes, applies a batch, loads accounts and
+     * applies a month-end update, so the journal holds every kind of record
+     *
+     * @param database Database with a journal
+     */
+    private static void makeChanges(AccountDatabase database) {
+        Profile ann = new Profile("Ann", "Lee", new Date(3, 14, 1990));
+        Profile bob = new Profile("Bob", "Ray", new Date(7, 1, 2002));
+        assertTrue(database.open(new Checking(ann, 1500)));
+        assertTrue(database.open(new CollegeChecking(bob, 300, Campus.CAMDEN)));
+        assertTrue(database.open(new Savings(ann, 2500, true)));
+        assertTrue(database.open(new MoneyMarket(bob, 3000, true, 0)));
+        database.deposit(new Checking(ann, 250.25));
+        assertTrue(database.withdraw(new MoneyMarket(bob, 1200)));
+        assertFalse(database.withdraw(new CollegeChecking(bob, 5000)));
+        assertTrue(database.close(new Savings(ann, 0)));
+        TransactionBatch batch = new TransactionBatch();
+        batch.deposit(ann, "C", 1000);
+        batch.withdraw(bob, "MM", 50_000);
+        batch.withdraw(ann, "C", 500);
+        batch.withdraw(bob, "CC", 100_000);
+        batch.deposit(ann, "S", 100);
+        assertArrayEquals(new byte[] {TransactionBatch.APPLIED, TransactionBatch.APPLIED, TransactionBatch.APPLIED,
+                TransactionBatch.INSUFFICIENT_FUNDS, TransactionBatch.NOT_FOUND}, database.apply(batch));
+        LoadReport report = loadRows(database,
+                "C,Cal,Moss,5/5/2005,10\nC,Cal,Moss,5/5/2005,20\nCC,Cal,Moss,5/5/2005,30,0\n");
+        assertEquals(1, report.getLoaded());
+        assertEquals(2, report.getDuplicates());
+        database.printUpdatesBalances();
+    }
+
+    /**
+     * Loads account rows into a database
+     */
+    private static LoadReport loadRows(AccountDatabase database, String rows) {
+        try {
+            return new AccountLoader(database).load(new BufferedReader(new StringReader(rows)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A database rebuilt from the journal after a clean restart holds the same
+     * accounts, whichever kind of database wrote the journal
+     */
+    @Test
+    void replaysJournalAfterRestart() throws IOException {
+        replaysJournalAfterRestart(new AccountDatabase(), directory.resolve("array"));
+        replaysJournalAfterRestart(new ConcurrentAccountDatabase(), directory.resolve("concurrent"));
+        try (OffHeapAccountDatabase offHeap = new OffHeapAccountDatabase()) {
+            replaysJournalAfterRestart(offHeap, directory.resolve("off-heap"));
+        }
+    }
+
+    /**
+     * Makes changes to a database and checks they are replayed after a restart
+     *
+     * @param database         Database to check
+     * @param journalDirectory Directory for its journal
+     */
+    private static void replaysJournalAfterRestart(AccountDatabase database, Path journalDirectory)
+            throws IOException {
+        TransactionJournal journal = TransactionJournal.open(journalDirectory, database);
+        makeChanges(database);
+        journal.close();
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal.open(journalDirectory, restored).close();
+        assertEquals(database.printSorted(), restored.printSorted());
+        assertEquals(database.printFeesAndInterests(), restored.printFeesAndInterests());
+    }
+
+    /**
+     * A record that was only partly written when the program crashed is
+     * dropped, the records before it are replayed, and the journal appends
+     * after the last whole record
+     */
+    @Test
+    void dropsTornRecordAfterCrash() throws IOException {
+        AccountDatabase database = new AccountDatabase();
+        Profile holder = new Profile("Cal", "Moss", new Date(5, 5, 1985));
+        Path segment = directory.resolve(FIRST_SEGMENT);
+        TransactionJournal journal = TransactionJournal.open(directory, database);
+        database.open(new Checking(holder, 100));
+        database.deposit(new Checking(holder, 50));
+        long whole = Files.size(segment);
+        database.deposit(new Checking(holder, 900));
+        journal.close();
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            file.truncate(whole + 5);
+        }
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal reopened = TransactionJournal.open(directory, restored);
+        assertEquals(whole, Files.size(segment));
+        assertEquals(15000, restored.getAccount(holder, "C").balance);
+        restored.deposit(new Checking(holder, 1));
+        reopened.close();
+
+        AccountDatabase again = new AccountDatabase();
+        TransactionJournal.open(directory, again).close();
+        assertEquals(15100, again.getAccount(holder, "C").balance);
+    }
+
+    /**
+     * Bytes that fail the checksum at the end of the journal are cut off
+     */
+    @Test
+    void dropsGarbageAtEndOfJournal() throws IOException {
+        AccountDatabase database = new AccountDatabase();
+        TransactionJournal journal = TransactionJournal.open(directory, database);
+        makeChanges(database);
+        journal.close();
+        Path segment = directory.resolve(FIRST_SEGMENT);
+        long whole = Files.size(segment);
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            file.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 12, 1, 2, 3, 4, 5, 6, 7}));
+        }
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal.open(directory, restored).close();
+        assertEquals(whole, Files.size(segment));
+        assertEquals(database.printSorted(), restored.printSorted());
+    }
+
+    /**
+     * After a snapshot, the older segments are deleted and a restart loads
+     * the snapshot and replays only the segments written after it
+     */
+    @Test
+    void recoversFromSnapshotAndLaterSegments() throws Exception {
+        AccountDatabase database = new AccountDatabase();
+        Profile holder = new Profile("Dee", "Park", new Date(9, 30, 1979));
+        TransactionJournal journal = TransactionJournal.open(directory, database);
+        makeChanges(database);
+        Path snapshot = database.snapshot().get();
+        assertTrue(Files.exists(snapshot));
+        assertFalse(Files.exists(directory.resolve(FIRST_SEGMENT)));
+
+        database.open(new MoneyMarket(holder, 5000, true, 0));
+        assertTrue(database.withdraw(new MoneyMarket(holder, 10)));
+        database.snapshot().get();
+        database.deposit(new MoneyMarket(holder, 20));
+        database.printUpdatesBalances();
+        journal.close();
+        assertEquals(1, count("snapshot-"));
+        assertEquals(1, count("journal-"));
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal.open(directory, restored).close();
+        assertEquals(database.printSorted(), restored.printSorted());
+        assertEquals(database.printFeesAndInterests(), restored.printFeesAndInterests());
+    }
+
+    /**
+     * A small segment size makes the database take snapshots by itself, and
+     * the database is still rebuilt from the files left behind
+     */
+    @Test
+    void recoversAfterAutomaticSnapshots() throws IOException, InterruptedException {
+        ConcurrentAccountDatabase database = new ConcurrentAccountDatabase();
+        TransactionJournal journal = TransactionJournal.open(directory, database, 256);
+        for (int i = 0; i < 200; i++) {
+            Profile holder = new Profile("First" + i, "Last", new Date(1, 2, 1990));
+            database.open(new Savings(holder, 1000 + i, i % 2 == 0));
+            database.deposit(new Savings(holder, i));
+        }
+        while (count("snapshot-") == 0) {
+            Thread.sleep(10);
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("snapshot-writer")) {
+                thread.join();
+            }
+        }
+        journal.close();
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal.open(directory, restored).close();
+        assertEquals(database.printSorted(), restored.printSorted());
+    }
+
+    /**
+     * If replay fails partway, the accounts replayed so far are dropped
+     * instead of being left in a half-restored database
+     */
+    @Test
+    void clearsDatabaseWhenReplayFails() throws IOException {
+        AccountDatabase database = new AccountDatabase();
+        TransactionJournal journal = TransactionJournal.open(directory, database);
+        makeChanges(database);
+        journal.close();
+        Files.createFile(directory.resolve("journal-0000000000000002.log"));
+
+        AccountDatabase restored = new AccountDatabase();
+        IOException failure = assertThrows(IOException.class, () -> TransactionJournal.open(directory, restored));
+        assertEquals("Journal segment 1 is missing.", failure.getMessage());
+        assertEquals(0, restored.getNumAcct());
+        assertEquals("", restored.printSorted());
+
+        ConcurrentAccountDatabase concurrent = new ConcurrentAccountDatabase();
+        assertThrows(IOException.class, () -> TransactionJournal.open(directory, concurrent));
+        assertEquals(0, concurrent.getNumAcct());
+        assertEquals(0, concurrent.getAccountsArray().length);
+    }
+
+    /**
+     * Batches and single withdrawals on the same accounts from several
+     * threads are recorded in the order they are applied, so replaying the
+     * journal gives the same balances
+     */
+    @Test
+    void replaysConcurrentBatchesAndWithdrawals() throws IOException, InterruptedException {
+        ConcurrentAccountDatabase database = new ConcurrentAccountDatabase();
+        TransactionJournal journal = TransactionJournal.open(directory, database);
+        Profile[] holders = new Profile[20];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = new Profile("First" + i, "Last", new Date(1, 2, 1990));
+            database.open(new MoneyMarket(holders[i], 2500, true, 0));
+        }
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int teller = t;
+            threads[t] = new Thread(() -> {
+                for (int round = 0; round < 50; round++) {
+                    TransactionBatch batch = new TransactionBatch();
+                    for (int i = 0; i < holders.length; i++) {
+                        batch.withdraw(holders[(i + teller) % holders.length], "MM", 3000 + 100 * teller);
+                        batch.deposit(holders[i], "MM", 1500);
+                    }
+                    database.apply(batch);
+                    database.withdraw(new MoneyMarket(holders[(round + teller) % holders.length], 40));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        journal.close();
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal.open(directory, restored).close();
+        assertEquals(database.printSorted(), restored.printSorted());
+    }
+
+    /**
+     * A batch with a deposit that would overflow a balance is refused before
+     * any of it is recorded, so the database and its journal still agree
+     */
+    @Test
+    void refusesOverflowingBatchBeforeRecordingIt() throws IOException {
+        AccountDatabase database = new AccountDatabase();
+        Profile ann = new Profile("Ann", "Lee", new Date(3, 14, 1990));
+        Profile bob = new Profile("Bob", "Ray", new Date(7, 1, 2002));
+        TransactionJournal journal = TransactionJournal.open(directory, database);
+        database.open(new Checking(ann, 100));
+        database.open(new Checking(bob, 100));
+        TransactionBatch batch = new TransactionBatch();
+        batch.deposit(ann, "C", 500);
+        batch.deposit(bob, "C", Long.MAX_VALUE);
+        String before = database.printSorted();
+        assertThrows(ArithmeticException.class, () -> database.apply(batch));
+        assertEquals(before, database.printSorted());
+        database.deposit(new Checking(bob, 1));
+        journal.close();
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal.open(directory, restored).close();
+        assertEquals(database.printSorted(), restored.printSorted());
+    }
+
+    /**
+     * A missing first segment, segment 0 without a snapshot or the segment
+     * started with the latest snapshot, fails the open instead of replaying
+     * the later segments over the wrong state
+     */
+    @Test
+    void failsWhenFirstSegmentIsMissing() throws Exception {
+        Profile holder = new Profile("Fay", "Wong", new Date(4, 4, 1984));
+        Path withoutSnapshot = directory.resolve("without-snapshot");
+        AccountDatabase database = new AccountDatabase();
+        TransactionJournal journal = TransactionJournal.open(withoutSnapshot, database);
+        database.open(new Checking(holder, 100));
+        journal.roll();
+        database.deposit(new Checking(holder, 50));
+        journal.close();
+        Files.delete(withoutSnapshot.resolve(FIRST_SEGMENT));
+
+        AccountDatabase restored = new AccountDatabase();
+        IOException failure = assertThrows(IOException.class, () -> TransactionJournal.open(withoutSnapshot, restored));
+        assertEquals("Journal segment 0 is missing.", failure.getMessage());
+        assertEquals(0, restored.getNumAcct());
+
+        Path withSnapshot = directory.resolve("with-snapshot");
+        database = new AccountDatabase();
+        journal = TransactionJournal.open(withSnapshot, database);
+        database.open(new Checking(holder, 100));
+        database.snapshot().get();
+        database.deposit(new Checking(holder, 50));
+        journal.roll();
+        database.deposit(new Checking(holder, 25));
+        journal.close();
+        Files.delete(withSnapshot.resolve("journal-0000000000000001.log"));
+
+        AccountDatabase again = new AccountDatabase();
+        failure = assertThrows(IOException.class, () -> TransactionJournal.open(withSnapshot, again));
+        assertEquals("Journal segment 1 is missing.", failure.getMessage());
+        assertEquals(0, again.getNumAcct());
+    }
+
+    /**
+     * When the journal cannot be written, a deposit, withdrawal, open, close,
+     * month-end, batch or load throws and leaves the database as it was
+     */
+    @Test
+    void keepsStateWhenJournalCannotBeWritten() throws IOException {
+        keepsStateWhenJournalCannotBeWritten(new AccountDatabase(), directory.resolve("array"));
+        keepsStateWhenJournalCannotBeWritten(new ConcurrentAccountDatabase(), directory.resolve("concurrent"));
+        try (OffHeapAccountDatabase offHeap = new OffHeapAccountDatabase()) {
+            keepsStateWhenJournalCannotBeWritten(offHeap, directory.resolve("off-heap"));
+        }
+    }
+
+    /**
+     * Makes the journal of a database fail and checks that changes are refused
+     *
+     * @param database Database to check
+     * @param journalDirectory Directory for its journal
+     */
+    private static void keepsStateWhenJournalCannotBeWritten(AccountDatabase database, Path journalDirectory)
+            throws IOException {
+        Profile holder = new Profile("Eve", "Stone", new Date(2, 2, 1992));
+        TransactionJournal journal = TransactionJournal.open(journalDirectory, database);
+        database.open(new MoneyMarket(holder, 3000, true, 0));
+        journal.close();
+        String before = database.printSorted();
+
+        assertThrows(UncheckedIOException.class, () -> database.deposit(new MoneyMarket(holder, 100)));
+        assertThrows(UncheckedIOException.class, () -> database.withdraw(new MoneyMarket(holder, 100)));
+        assertThrows(UncheckedIOException.class, () -> database.open(new Savings(holder, 100, false)));
+        assertThrows(UncheckedIOException.class, () -> database.close(new MoneyMarket(holder, 0)));
+        assertThrows(UncheckedIOException.class, () -> database.printUpdatesBalances());
+        TransactionBatch batch = new TransactionBatch();
+        batch.deposit(holder, "MM", 100);
+        batch.withdraw(holder, "MM", 100);
+        assertThrows(UncheckedIOException.class, () -> database.apply(batch));
+        assertThrows(UncheckedIOException.class,
+                () -> loadRows(database, "S,Eve,Stone,2/2/1992,100,0\nC,Ida,Lund,3/3/1993,5\n"));
+
+        assertEquals(before, database.printSorted());
+        assertEquals(1, database.getNumAcct());
+        assertEquals(0, ((MoneyMarket) database.getAccount(holder, "MM")).getWithdrawal());
+    }
+
+    /**
+     * When the report sink fails partway through a month-end, e.g. because a
+     * client disconnects, every account has still been updated, and the
+     * database matches the one rebuilt from its journal
+     */
+    @Test
+    void appliesWholeMonthEndWhenReportFails() throws IOException {
+        appliesWholeMonthEndWhenReportFails(new AccountDatabase(), directory.resolve("array"), null);
+        appliesWholeMonthEndWhenReportFails(new AccountDatabase(), directory.resolve("pool"),
+                ForkJoinPool.commonPool());
+        appliesWholeMonthEndWhenReportFails(new ConcurrentAccountDatabase(), directory.resolve("concurrent"), null);
+        try (OffHeapAccountDatabase offHeap = new OffHeapAccountDatabase()) {
+            appliesWholeMonthEndWhenReportFails(offHeap, directory.resolve("off-heap"), null);
+        }
+    }
+
+    /**
+     * Runs a month-end on a database whose report sink fails and checks every account was updated
+     *
+     * @param database         Database to check
+     * @param journalDirectory Directory for its journal
+     * @param pool             Pool that updates the accounts, or null for the default
+     */
+    private static void appliesWholeMonthEndWhenReportFails(AccountDatabase database, Path journalDirectory,
+                                                            ForkJoinPool pool) throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            switch (i % 3) {
+                case 0 -> rows.append("C,First").append(i).append(",Last,1/2/1990,").append(500 + i).append('\n');
+                case 1 -> rows.append("MM,First").append(i).append(",Last,1/2/1990,").append(2500 + i).append('\n');
+                default -> rows.append("S,First").append(i).append(",Last,1/2/1990,").append(i).append(",1\n");
+            }
+        }
+        AccountDatabase expected = new AccountDatabase();
+        new AccountLoader(expected).load(new BufferedReader(new StringReader(rows.toString())));
+        expected.printUpdatesBalances();
+
+        TransactionJournal journal = TransactionJournal.open(journalDirectory, database);
+        new AccountLoader(database).load(new BufferedReader(new StringReader(rows.toString())));
+        Appendable failing = new FailingSink(100);
+        assertThrows(IOException.class, () -> {
+            if (pool == null) {
+                database.printUpdatesBalances(failing);
+            } else {
+                database.printUpdatesBalances(failing, pool);
+            }
+        });
+        assertEquals(expected.printSorted(), database.printSorted());
+        journal.close();
+
+        AccountDatabase restored = new AccountDatabase();
+        TransactionJournal.open(journalDirectory, restored).close();
+        assertEquals(expected.printSorted(), restored.printSorted());
+    }
+
+    /**
+     * Sink that fails after a number of lines, like a connection whose client went away
+     */
+    private static class FailingSink implements Appendable {
+        private int lines;
+
+        /**
+         * Creates a sink that takes a number of lines before failing
+         *
+         * @param lines Number of lines written before the sink fails
+         */
+        FailingSink(int lines) {
+            this.lines = lines;
+        }
+
+        /**
+         * Takes a line, or fails once the lines are used up
+         */
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            if (lines-- == 0) {
+                throw new IOException("Connection reset");
+            }
+            return this;
+        }
+
+        /**
+         * Takes part of a line
+         */
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            return append(text.subSequence(start, end));
+        }
+
+        /**
+         * Takes a character
+         */
+        @Override
+        public Appendable append(char c) throws IOException {
+            return append(String.valueOf(c));
+        }
+    }
+
+    /**
+     * Counts the files in the journal directory whose names contain a string
+     */
+    private long count(String part) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().contains(part)).count();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package bankingsoftware;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TransactionServerTest class that checks that bad commands get a reply
+ * instead of ending the connection.
+ *
+ * @author Jia Wern Chong, Frances Cortuna
+ */
+class TransactionServerTest {
+
+    /**
+     * Amounts that do not fit in cents, and deposits that would overflow a
+     * balance, are rejected and the commands after them still run, with and
+     * without locks
+     */
+    @Test
+    void rejectsAmountsOutOfRange() throws IOException {
+        for (boolean lockFree : new boolean[]{false, true}) {
+            String replies = serve(lockFree, """
+                    O C John Doe 1/2/1990 100
+                    D C John Doe 1/2/1990 1e300
+                    D C John Doe 1/2/1990 90000000000000000
+                    D C John Doe 1/2/1990 90000000000000000
+                    W C John Doe 1/2/1990 50
+                    Q
+                    """);
+            assertTrue(replies.contains("Not a valid amount.\n"), replies);
+            assertTrue(replies.contains("Deposit - amount is too large.\n"), replies);
+            assertTrue(replies.contains("John Doe 1/2/1990(C) Withdraw - balance updated.\n"), replies);
+            assertTrue(replies.endsWith("Transaction Manager is terminated.\n"), replies);
+        }
+    }
+
+    /**
+     * Runs commands on a new server with an empty database and returns the replies
+     */
+    private static String serve(boolean lockFree, String commands) throws IOException {
+        TransactionServer server = new TransactionServer(new ConcurrentAccountDatabase(0, lockFree));
+        StringWriter out = new StringWriter();
+        server.serve(new BufferedReader(new StringReader(commands)), out);
+        return out.toString();
+    }
+}